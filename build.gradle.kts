@@ -2,6 +2,13 @@ plugins {
 	id("java")
 	id("org.springframework.boot") version "3.4.0" // ou 3.3.x
 	id("io.spring.dependency-management") version "1.1.6"
+	id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+	toolchain {
+		languageVersion = JavaLanguageVersion.of(21) // virtual threads
+	}
 }
 
 repositories {
@@ -11,12 +18,19 @@ repositories {
 dependencies {
 	implementation("org.apache.tika:tika-core:2.9.0")
 	implementation("org.springframework.boot:spring-boot-starter-web")
+	// Stack reativa do perfil "edge" (desligado por padrão). Fica em implementation porque os
+	// controllers e adapters reativos estão em src/main; com spring-webmvc no classpath o Boot
+	// continua subindo em modo servlet, e o Netty só é iniciado quando o perfil está ativo
+	implementation("org.springframework.boot:spring-boot-starter-webflux")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
 	implementation("org.springframework.boot:spring-boot-starter-data-mongodb") // << ESSENCIAL
 
 	// Actuator (opcional)
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
 
+	// Cache em memória (linkId -> metadata)
+	implementation("com.github.ben-manes.caffeine:caffeine")
+
 	// MinIO
 	implementation("io.minio:minio:8.5.10")
 
@@ -33,8 +47,39 @@ dependencies {
 	testImplementation("org.springframework.boot:spring-boot-testcontainers")
 	testImplementation("org.assertj:assertj-core:3.26.0")
 
+	// Benchmarks (src/jmh): usam os test doubles e o MockMvc
+	jmhImplementation("org.springframework.boot:spring-boot-starter-test")
+
 }
 
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+// Testes de carga ficam fora do build normal: ./gradlew loadTest
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("load")
+	}
+}
+
+val loadTest by tasks.registering(Test::class) {
+	description = "Downloads concorrentes com leitores lentos (threads de plataforma vs virtuais)."
+	group = "verification"
+	testClassesDirs = sourceSets["test"].output.classesDirs
+	classpath = sourceSets["test"].runtimeClasspath
+	useJUnitPlatform {
+		includeTags("load")
+	}
+	testLogging {
+		showStandardStreams = true
+	}
+}
+
+// Benchmarks: ./gradlew jmh -> build/results/jmh/results.json
+jmh {
+	includeTests = true
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+	jvmArgs = listOf("-Xms1g", "-Xmx1g")
+}
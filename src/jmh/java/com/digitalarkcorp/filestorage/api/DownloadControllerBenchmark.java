@@ -0,0 +1,73 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * A download link end to end through the MVC stack (argument resolution, controller,
+ * header writing, body copy) with in-memory metadata and storage.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DownloadControllerBenchmark {
+
+    @Param({"1024", "1048576"})
+    int size;
+
+    private MockMvc mvc;
+    private String linkId;
+    private String etag;
+
+    @Setup
+    public void setup() {
+        DefaultFileService service = new DefaultFileService(
+                new FakeMetadataRepository(), new FakeBlobRepository(), new FakeStoragePort(), Clock.systemUTC(),
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        FileMetadata meta = service.upload("bench", "bench.bin", Visibility.PUBLIC, List.of(),
+                "application/octet-stream", data.length, new ByteArrayInputStream(data));
+        linkId = meta.linkId();
+        etag = "\"" + meta.contentHash() + "\"";
+        mvc = MockMvcBuilders.standaloneSetup(new DownloadController(service)).build();
+    }
+
+    @Benchmark
+    public byte[] fullDownload() throws Exception {
+        return mvc.perform(get("/d/{linkId}", linkId)).andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] rangeDownload() throws Exception {
+        return mvc.perform(get("/d/{linkId}", linkId).header(HttpHeaders.RANGE, "bytes=0-511"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public int notModified() throws Exception {
+        return mvc.perform(get("/d/{linkId}", linkId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,119 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.application.util.HashingInputStream;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The upload hot loop: SHA-256 while spooling to storage, at several copy-buffer sizes.
+ * {@code hashAndSpool} is the bare loop; {@code upload} is the whole service call against an
+ * in-memory repository and a storage that only drains the stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UploadBenchmark {
+
+    @Param({"8192", "65536", "1048576"})
+    int bufferSize;
+
+    @Param({"1048576", "16777216"})
+    int payloadSize;
+
+    private byte[] payload;
+    private DefaultFileService service;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void payload() {
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+    }
+
+    /** A fresh repository per call, so the same content never trips the dedup check. */
+    @Setup(Level.Invocation)
+    public void service() {
+        service = new DefaultFileService(new FakeMetadataRepository(), new FakeBlobRepository(), new DrainingStorage(bufferSize),
+                Clock.systemUTC(), new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+    }
+
+    @Benchmark
+    public String hashAndSpool(Blackhole bh) throws IOException {
+        HashingInputStream in = new HashingInputStream(new ByteArrayInputStream(payload));
+        byte[] buf = new byte[bufferSize];
+        int r;
+        while ((r = in.read(buf)) != -1) {
+            bh.consume(r);
+        }
+        return in.hash();
+    }
+
+    @Benchmark
+    public FileMetadata upload() {
+        return service.upload("bench", "file-" + (sequence++), Visibility.PRIVATE, List.of(),
+                "application/octet-stream", payload.length, new ByteArrayInputStream(payload));
+    }
+
+    /** Reads every byte with the benchmark's buffer size and keeps nothing. */
+    private static final class DrainingStorage implements StoragePort {
+
+        private final int bufferSize;
+
+        DrainingStorage(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+            byte[] buf = new byte[bufferSize];
+            try {
+                while (data.read(buf) != -1) {
+                    // drain
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Resource get(String objectKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Resource get(String objectKey, long offset, long length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void move(String sourceKey, String targetKey) {
+        }
+
+        @Override
+        public void delete(String objectKey) {
+        }
+
+        @Override
+        public List<String> list(String prefix) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileQueriesBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+    }
+
+    @Benchmark
+    public String sha256Bytes() {
+        return FileQueries.sha256(data);
+    }
+
+    @Benchmark
+    public String sha256Stream() {
+        return FileQueries.sha256(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public byte[] readAll() {
+        return FileQueries.readAll(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,69 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** Local disk put/get throughput; results depend on the machine's file system and page cache. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalStorageAdapterBenchmark {
+
+    @Param({"65536", "16777216"})
+    int size;
+
+    private Path root;
+    private LocalStorageAdapter storage;
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("jmh-local-storage");
+        storage = new LocalStorageAdapter(root);
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        storage.put("read-me", new ByteArrayInputStream(data), data.length, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void put() {
+        storage.put("write-me", new ByteArrayInputStream(data), data.length, null);
+    }
+
+    @Benchmark
+    public long getTransfer() throws IOException {
+        StoragePort.Resource r = storage.get("read-me");
+        try (InputStream in = r.stream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long getRange() throws IOException {
+        StoragePort.Resource r = storage.get("read-me", size / 4, size / 2);
+        try (InputStream in = r.stream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.api.dto.FileResponse;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.infrastructure.mongo.model.FileMetadataDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Per-document cost of a list page: Mongo document to domain, domain to response DTO. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataMappingBenchmark {
+
+    private FileMetadataDocument document;
+    private FileMetadata metadata;
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        document = new FileMetadataDocument(
+                "65a1f0c2e4b0a1b2c3d4e5f6", "owner-1", "Quarterly Report.pdf", "PUBLIC",
+                List.of("Finance", "Q4", "Reports"), 1_234_567, "application/pdf",
+                "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+                "5b1c7a52-9e0f-4a3e-8a8c-2f6f7c1d9e11", "READY", now, now, null, null,
+                List.of("finance", "q4", "reports"), "quarterly report.pdf",
+                List.of("qua", "uar", "art", "rte", "ter", "erl", "rly"));
+        metadata = MongoFileMetadataRepository.map(document);
+    }
+
+    @Benchmark
+    public FileMetadata map() {
+        return MongoFileMetadataRepository.map(document);
+    }
+
+    @Benchmark
+    public FileResponse toResponse() {
+        return FileResponse.from(metadata);
+    }
+
+    @Benchmark
+    public FileResponse mapAndRespond() {
+        return FileResponse.from(MongoFileMetadataRepository.map(document));
+    }
+}
@@ -1,46 +1,148 @@
-package com.digitalarkcorp.filestorage.api;
-
-import com.digitalarkcorp.filestorage.application.FileService;
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.ContentDisposition;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.*;
-
-@RestController
-@RequestMapping
-public class DownloadController {
-
-    private final FileService service;
-
-    public DownloadController(FileService service) {
-        this.service = service;
-    }
-
-    @GetMapping("/d/{linkId}")
-    public ResponseEntity<InputStreamResource> download(@PathVariable String linkId) {
-        StoragePort.Resource r = service.getForDownload(linkId);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentDisposition(ContentDisposition.attachment().filename("download.bin").build());
-        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
-        headers.setContentLength(r.contentLength());
-
-        String ct = r.contentType();
-        headers.setContentType((ct != null && !ct.isBlank())
-                ? MediaType.parseMediaType(ct)
-                : MediaType.APPLICATION_OCTET_STREAM);
-
-        var meta = service.findByLinkId(linkId);
-        if (meta != null && meta.contentHash() != null && !meta.contentHash().isBlank()) {
-            headers.setETag("\"" + meta.contentHash() + "\"");
-        }
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(new InputStreamResource(r.stream()));
-    }
-
-}
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.digitalarkcorp.filestorage.api.DownloadHeaders.*;
+
+@RestController
+@RequestMapping
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DownloadController {
+
+    private final FileService service;
+
+    public DownloadController(FileService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/d/{linkId}")
+    public ResponseEntity<InputStreamResource> download(@PathVariable String linkId,
+                                                        @RequestHeader HttpHeaders requestHeaders) {
+        FileDownload download = service.openDownload(linkId);
+        FileMetadata meta = download.metadata();
+
+        // answered from metadata alone: storage is never touched for a 304
+        boolean stored = sendStored(requestHeaders, meta);
+        if (notModified(requestHeaders, meta, stored)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(validatorHeaders(meta, stored))
+                    .build();
+        }
+
+        // compressed at rest and accepted as such: the stored bytes go out without decoding
+        if (stored) {
+            StoragePort.Resource r = download.openStored();
+            HttpHeaders headers = bodyHeaders(meta, true);
+            headers.setContentLength(r.contentLength());
+            headers.setContentType(contentType(meta));
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(new InputStreamResource(r.stream()));
+        }
+
+        List<HttpRange> ranges = requestedRanges(requestHeaders, meta);
+        if (!ranges.isEmpty()) {
+            ResponseEntity<InputStreamResource> partial = partial(download, ranges);
+            if (partial != null) return partial;
+        }
+
+        StoragePort.Resource r = download.open();
+
+        HttpHeaders headers = bodyHeaders(meta);
+        headers.setContentLength(r.contentLength());
+
+        String ct = r.contentType();
+        headers.setContentType((ct != null && !ct.isBlank())
+                ? MediaType.parseMediaType(ct)
+                : MediaType.APPLICATION_OCTET_STREAM);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(r.stream()));
+    }
+
+    /** 206 for satisfiable ranges, 416 when none is, or null to fall back to a full 200 response. */
+    private static ResponseEntity<InputStreamResource> partial(FileDownload download, List<HttpRange> ranges) {
+        FileMetadata meta = download.metadata();
+        long size = meta.size();
+        List<long[]> spans = spans(ranges, size);
+
+        if (spans.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, unsatisfiedRange(size))
+                    .build();
+        }
+        if (cheaperWhole(spans, meta)) return null;
+
+        MediaType ct = contentType(meta);
+        HttpHeaders headers = bodyHeaders(meta);
+
+        if (spans.size() == 1) {
+            long start = spans.get(0)[0];
+            long end = spans.get(0)[1];
+            StoragePort.Resource r = download.open(start, end - start + 1);
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, size));
+            headers.setContentLength(end - start + 1);
+            headers.setContentType(ct);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(new InputStreamResource(r.stream()));
+        }
+
+        // multipart/byteranges: each part is fetched from storage only when the previous one is drained
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<Supplier<InputStream>> parts = new ArrayList<>();
+        long length = 0;
+        for (long[] span : spans) {
+            byte[] head = partHeader(boundary, ct, span, size);
+            long partLength = span[1] - span[0] + 1;
+            parts.add(() -> new ByteArrayInputStream(head));
+            parts.add(() -> download.open(span[0], partLength).stream());
+            length += head.length + partLength;
+        }
+        byte[] tail = closingDelimiter(boundary);
+        parts.add(() -> new ByteArrayInputStream(tail));
+        length += tail.length;
+
+        Iterator<Supplier<InputStream>> it = parts.iterator();
+        InputStream body = new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return it.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return it.next().get();
+            }
+        });
+
+        headers.setContentLength(length);
+        headers.setContentType(new MediaType("multipart", "byteranges", Map.of("boundary", boundary)));
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(new InputStreamResource(body));
+    }
+}
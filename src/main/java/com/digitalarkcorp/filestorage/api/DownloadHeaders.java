@@ -0,0 +1,242 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * HTTP semantics of a download link, shared by the servlet and the reactive download
+ * endpoints: validators, conditional requests, byte ranges and content coding, all answered
+ * from metadata.
+ */
+final class DownloadHeaders {
+
+    private static final Duration PUBLIC_MAX_AGE = Duration.ofMinutes(5);
+
+    /** Most parts of an encoded blob answered as multipart/byteranges; see {@link #cheaperWhole}. */
+    static final int MAX_ENCODED_PARTS = 4;
+
+    private DownloadHeaders() {
+    }
+
+    static boolean notModified(HttpHeaders request, FileMetadata meta) {
+        return notModified(request, meta, false);
+    }
+
+    /**
+     * If-None-Match takes precedence; If-Modified-Since is only consulted without it (RFC 9110 13.2.2).
+     * Tags are compared with the ETag of the representation being selected, stored or decoded.
+     */
+    static boolean notModified(HttpHeaders request, FileMetadata meta, boolean stored) {
+        List<String> ifNoneMatch = request.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            if (!hasEtag(meta)) return false;
+            String current = etag(meta, stored);
+            for (String candidate : ifNoneMatch) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) return true;
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals(current)) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        return ifModifiedSince >= 0
+                && meta.updatedAt() != null
+                && meta.updatedAt().getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    static HttpHeaders validatorHeaders(FileMetadata meta) {
+        return validatorHeaders(meta, false);
+    }
+
+    /** ETag, Last-Modified and Cache-Control, shared by 200, 206 and 304 responses. */
+    static HttpHeaders validatorHeaders(FileMetadata meta, boolean stored) {
+        HttpHeaders headers = new HttpHeaders();
+        if (hasEtag(meta)) {
+            headers.setETag(etag(meta, stored));
+        }
+        if (meta.contentEncoding() != null) {
+            // the body depends on Accept-Encoding, which shared caches must key on
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (meta.updatedAt() != null) {
+            headers.setLastModified(meta.updatedAt());
+        }
+        // public links may sit in shared caches briefly; private ones must always revalidate
+        headers.setCacheControl(meta.visibility() == Visibility.PUBLIC
+                ? CacheControl.maxAge(PUBLIC_MAX_AGE).cachePublic()
+                : CacheControl.noCache().cachePrivate());
+        return headers;
+    }
+
+    static HttpHeaders bodyHeaders(FileMetadata meta) {
+        return bodyHeaders(meta, false);
+    }
+
+    /**
+     * Headers every body-carrying response has: attachment, Accept-Ranges and the validators,
+     * plus Content-Encoding when the stored bytes are sent as is.
+     */
+    static HttpHeaders bodyHeaders(FileMetadata meta, boolean stored) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(ContentDisposition.attachment().filename("download.bin").build());
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.addAll(validatorHeaders(meta, stored));
+        if (stored) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, meta.contentEncoding());
+        }
+        return headers;
+    }
+
+    /**
+     * Whether a blob stored encoded can be sent as is. Range requests always get the decoded
+     * content, so byte offsets keep meaning the same thing whatever the client accepts.
+     */
+    static boolean sendStored(HttpHeaders request, FileMetadata meta) {
+        String coding = meta.contentEncoding();
+        if (coding == null || request.getFirst(HttpHeaders.RANGE) != null) return false;
+
+        double exact = -1;
+        double any = -1;
+        for (String value : request.getValuesAsList(HttpHeaders.ACCEPT_ENCODING)) {
+            String[] params = value.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(coding) || name.equals("x-" + coding)) {
+                exact = Math.max(exact, qvalue(params));
+            } else if (name.equals("*")) {
+                any = qvalue(params);
+            }
+        }
+        return (exact >= 0 ? exact : any) > 0;
+    }
+
+    private static double qvalue(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String p = params[i].trim();
+            if (p.startsWith("q=") || p.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static MediaType contentType(FileMetadata meta) {
+        String ct = meta.contentType();
+        return (ct != null && !ct.isBlank())
+                ? MediaType.parseMediaType(ct)
+                : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    /** Ranges to honour, or empty when the whole representation should be sent. */
+    static List<HttpRange> requestedRanges(HttpHeaders request, FileMetadata meta) {
+        String range = request.getFirst(HttpHeaders.RANGE);
+        if (range == null || range.isBlank()) return List.of();
+
+        String ifRange = request.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange.trim(), meta)) return List.of();
+
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // malformed or abusive Range headers are ignored, as RFC 9110 allows
+            return List.of();
+        }
+    }
+
+    private static boolean ifRangeMatches(String ifRange, FileMetadata meta) {
+        if (ifRange.startsWith("W/")) return false;
+        if (ifRange.startsWith("\"")) {
+            return hasEtag(meta) && ifRange.equals(etag(meta));
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return meta.updatedAt() != null && meta.updatedAt().getEpochSecond() == date.toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /** Satisfiable ranges as inclusive {start, end} pairs; empty means 416. */
+    static List<long[]> spans(List<HttpRange> ranges, long size) {
+        List<long[]> spans = new ArrayList<>();
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (start > end) continue;
+            spans.add(new long[]{start, end});
+        }
+        return spans;
+    }
+
+    /**
+     * Overlapping ranges adding up to more than the file are cheaper to serve whole, and so are
+     * more than {@link #MAX_ENCODED_PARTS} ranges of a blob stored encoded: every part of those is
+     * decoded from the start of the object, so n parts cost up to n decodes of the whole blob.
+     */
+    static boolean cheaperWhole(List<long[]> spans, FileMetadata meta) {
+        if (spans.size() < 2) return false;
+        if (meta.contentEncoding() != null && spans.size() > MAX_ENCODED_PARTS) return true;
+        long total = 0;
+        for (long[] span : spans) total += span[1] - span[0] + 1;
+        return total > meta.size();
+    }
+
+    static String contentRange(long start, long end, long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    static String unsatisfiedRange(long size) {
+        return "bytes */" + size;
+    }
+
+    /** Delimiter and headers that precede one part of a multipart/byteranges body. */
+    static byte[] partHeader(String boundary, MediaType contentType, long[] span, long size) {
+        return ("\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": " + contentRange(span[0], span[1], size) + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static byte[] closingDelimiter(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean hasEtag(FileMetadata meta) {
+        return meta.contentHash() != null && !meta.contentHash().isBlank();
+    }
+
+    private static String etag(FileMetadata meta) {
+        return etag(meta, false);
+    }
+
+    /** The stored coding is a different representation of the same content, so it gets its own tag. */
+    private static String etag(FileMetadata meta, boolean stored) {
+        return stored
+                ? "\"" + meta.contentHash() + "-" + meta.contentEncoding() + "\""
+                : "\"" + meta.contentHash() + "\"";
+    }
+}
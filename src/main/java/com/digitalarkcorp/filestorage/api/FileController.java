@@ -1,125 +1,268 @@
-package com.digitalarkcorp.filestorage.api;
-
-import com.digitalarkcorp.filestorage.api.dto.FileResponse;
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.api.dto.UploadMetadata;
-import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
-import com.digitalarkcorp.filestorage.application.FileService;
-import com.digitalarkcorp.filestorage.infrastructure.config.PaginationProperties;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import jakarta.validation.Valid;
-import jakarta.validation.constraints.NotBlank;
-import org.apache.tika.Tika;
-import org.apache.tika.io.TikaInputStream;
-import org.springframework.http.MediaType;
-import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.io.IOException;
-import java.util.List;
-
-import static com.digitalarkcorp.filestorage.api.dto.FileResponse.from;
-
-@Validated
-@RestController
-@RequestMapping("/files")
-public class FileController {
-
-    private final FileService service;
-    private final PaginationProperties pagination;
-
-    public FileController(FileService service, PaginationProperties pagination) {
-        this.service = service;
-        this.pagination = pagination;
-    }
-
-    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public FileResponse upload(
-            @RequestHeader("X-User-Id") @NotBlank String userId,
-            @RequestPart("metadata") @Valid UploadMetadata meta,
-            @RequestPart("file") MultipartFile file
-    ) throws IOException {
-
-        var visibility = meta.visibility();
-        var tags = meta.tags();
-
-        String contentType = file.getContentType();
-        if (contentType == null || contentType.isBlank()) {
-            try (var tis = TikaInputStream.get(file.getInputStream())) {
-                contentType = new Tika().detect(tis, file.getOriginalFilename());
-            }
-        }
-
-        FileMetadata m = service.upload(
-                userId,
-                meta.filename(),
-                visibility,
-                tags,
-                contentType,
-                file.getSize(),
-                file.getInputStream() // novo stream para o upload real
-        );
-        return from(m);
-    }
-
-    @GetMapping("/public")
-    public List<FileResponse> listPublic(
-            @RequestParam(name = "tag", required = false) String tag,
-            @RequestParam(name = "q",   required = false) String q,
-            @RequestParam(name = "sortBy",  required = false, defaultValue = "CREATED_AT") ListQuery.SortBy sortBy,
-            @RequestParam(name = "sortDir", required = false, defaultValue = "DESC")       ListQuery.SortDir sortDir,
-            @RequestParam(name = "page",    required = false, defaultValue = "0")          Integer page,
-            @RequestParam(name = "size",    required = false, defaultValue = "20")         Integer size
-    ) {
-        var query = normalize(new ListQuery(tag, q, sortBy, sortDir, page, size));
-        return service.listPublic(query).stream().map(FileResponse::from).toList();
-    }
-
-    @PatchMapping(value = "/{id}/name", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public FileResponse rename(
-            @RequestHeader("X-User-Id") @NotBlank String userId,
-            @PathVariable("id") String id,
-            @RequestBody @Valid RenameRequest req
-    ) {
-        return from(service.rename(userId, id, req));
-    }
-
-    @GetMapping
-    public List<FileResponse> listByOwner(
-            @RequestHeader("X-User-Id") String userId,
-            @RequestParam(name = "tag", required = false) String tag,
-            @RequestParam(name = "q",   required = false) String q,
-            @RequestParam(name = "sortBy",  required = false, defaultValue = "CREATED_AT") ListQuery.SortBy sortBy,
-            @RequestParam(name = "sortDir", required = false, defaultValue = "DESC")       ListQuery.SortDir sortDir,
-            @RequestParam(name = "page",    required = false, defaultValue = "0")          Integer page,
-            @RequestParam(name = "size",    required = false, defaultValue = "20")         Integer size
-    ) {
-        var query = normalize(new ListQuery(tag, q, sortBy, sortDir, page, size));
-        return service.listByOwner(userId, query).stream().map(FileResponse::from).toList();
-    }
-
-    private static ListQuery normalize(ListQuery q) {
-        Integer pObj = q.page();
-        Integer sObj = q.size();
-
-        int page = (pObj == null || pObj < 0) ? 0 : pObj;
-        int size = (sObj == null || sObj <= 0) ? 20 : Math.min(sObj, 100);
-
-        var sortBy  = (q.sortBy()  != null) ? q.sortBy()  : ListQuery.SortBy.CREATED_AT;
-        var sortDir = (q.sortDir() != null) ? q.sortDir() : ListQuery.SortDir.DESC;
-
-        return new ListQuery(q.tag(), q.q(), sortBy, sortDir, page, size);
-    }
-
-    @DeleteMapping("/{id}")
-    public java.util.Map<String, Boolean> delete(
-            @RequestHeader("X-User-Id") @NotBlank String userId,
-            @PathVariable("id") String id
-    ) {
-        boolean ok = service.delete(userId, id);
-        if (!ok) throw new com.digitalarkcorp.filestorage.api.errors.NotFoundException("file not found");
-        return java.util.Map.of("deleted", true);
-    }
-}
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.api.dto.BatchDeleteRequest;
+import com.digitalarkcorp.filestorage.api.dto.BatchDeleteResponse;
+import com.digitalarkcorp.filestorage.api.dto.BatchUploadResponse;
+import com.digitalarkcorp.filestorage.api.dto.FileResponse;
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.dto.UploadMetadata;
+import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
+import com.digitalarkcorp.filestorage.api.dto.UploadByHashRequest;
+import com.digitalarkcorp.filestorage.api.dto.UploadSessionRequest;
+import com.digitalarkcorp.filestorage.api.dto.UploadSessionResponse;
+import com.digitalarkcorp.filestorage.api.errors.BadRequestException;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadItem;
+import com.digitalarkcorp.filestorage.application.UploadSessionService;
+import com.digitalarkcorp.filestorage.application.util.ListCursor;
+import com.digitalarkcorp.filestorage.infrastructure.config.PaginationProperties;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.digitalarkcorp.filestorage.api.dto.FileResponse.from;
+
+@Validated
+@RestController
+@RequestMapping("/files")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class FileController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /** Files per batch upload; the multipart part count limit leaves room for this many plus the metadata. */
+    static final int MAX_BATCH_FILES = 500;
+
+    private final FileService service;
+    private final UploadSessionService uploads;
+    private final PaginationProperties pagination;
+
+    public FileController(FileService service, UploadSessionService uploads, PaginationProperties pagination) {
+        this.service = service;
+        this.uploads = uploads;
+        this.pagination = pagination;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public FileResponse upload(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestPart("metadata") @Valid UploadMetadata meta,
+            @RequestPart("file") MultipartFile file
+    ) throws IOException {
+
+        var visibility = meta.visibility();
+        var tags = meta.tags();
+
+        // a missing content type is sniffed by the service while it streams the upload
+        try (InputStream data = file.getInputStream()) {
+            FileMetadata m = service.upload(
+                    userId,
+                    meta.filename(),
+                    visibility,
+                    tags,
+                    file.getContentType(),
+                    file.getSize(),
+                    data
+            );
+            return from(m);
+        }
+    }
+
+    /**
+     * Uploads many files in one request: a {@code metadata} JSON array and one {@code file} part
+     * per entry, in the same order. Files whose metadata is invalid, or that conflict or fail,
+     * are reported per file instead of failing the batch.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public BatchUploadResponse uploadBatch(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestPart("metadata") List<UploadMetadata> metadata,
+            @RequestPart("file") List<MultipartFile> files
+    ) {
+        if (metadata.size() != files.size()) {
+            throw new BadRequestException("expected one metadata entry per file part");
+        }
+        if (files.size() > MAX_BATCH_FILES) {
+            throw new BadRequestException("at most " + MAX_BATCH_FILES + " files per batch");
+        }
+
+        List<UploadItem> items = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            // constraints are checked per entry by the service; a null entry is just invalid
+            UploadMetadata meta = Objects.requireNonNullElse(metadata.get(i), new UploadMetadata(null, null, null));
+            MultipartFile file = files.get(i);
+            items.add(new UploadItem(meta.filename(), meta.visibility(), meta.tags(),
+                    file.getContentType(), file.getSize(), () -> open(file)));
+        }
+        return BatchUploadResponse.from(service.uploadAll(userId, items));
+    }
+
+    private static InputStream open(MultipartFile file) {
+        try {
+            return file.getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Sync clients send the SHA-256 and size first; 404 means the bytes have to be uploaded. */
+    @PostMapping(value = "/by-hash", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public FileResponse uploadByHash(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestBody @Valid UploadByHashRequest req
+    ) {
+        return from(service.uploadByHash(
+                userId, req.filename(), req.visibility(), req.tags(), req.contentType(), req.sha256(), req.size()));
+    }
+
+    @PostMapping(value = "/uploads", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public UploadSessionResponse createUpload(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestBody @Valid UploadSessionRequest req
+    ) {
+        long length = (req.length() != null) ? req.length() : -1;
+        return UploadSessionResponse.from(uploads.create(
+                userId, req.filename(), req.visibility(), req.tags(), req.contentType(), length));
+    }
+
+    /** Where to resume after a dropped connection: the committed offset and the next chunk number. */
+    @GetMapping(value = "/uploads/{sessionId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public UploadSessionResponse uploadStatus(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @PathVariable("sessionId") String sessionId
+    ) {
+        return UploadSessionResponse.from(uploads.get(userId, sessionId));
+    }
+
+    /** The raw request body is streamed to storage; it is not subject to the multipart limits. */
+    @PutMapping(value = "/uploads/{sessionId}/chunks/{index}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public UploadSessionResponse putChunk(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestHeader(name = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @PathVariable("sessionId") String sessionId,
+            @PathVariable("index") int index,
+            InputStream body
+    ) {
+        long length = (contentLength != null) ? contentLength : -1;
+        return UploadSessionResponse.from(uploads.putChunk(userId, sessionId, index, length, body));
+    }
+
+    @PostMapping(value = "/uploads/{sessionId}/complete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public FileResponse completeUpload(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @PathVariable("sessionId") String sessionId
+    ) {
+        return from(uploads.complete(userId, sessionId));
+    }
+
+    @DeleteMapping("/uploads/{sessionId}")
+    public java.util.Map<String, Boolean> abortUpload(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @PathVariable("sessionId") String sessionId
+    ) {
+        uploads.abort(userId, sessionId);
+        return java.util.Map.of("aborted", true);
+    }
+
+    @GetMapping("/public")
+    public ResponseEntity<List<FileResponse>> listPublic(
+            @RequestParam(name = "tag", required = false) String tag,
+            @RequestParam(name = "q",   required = false) String q,
+            @RequestParam(name = "sortBy",  required = false, defaultValue = "CREATED_AT") ListQuery.SortBy sortBy,
+            @RequestParam(name = "sortDir", required = false, defaultValue = "DESC")       ListQuery.SortDir sortDir,
+            @RequestParam(name = "page",    required = false, defaultValue = "0")          Integer page,
+            @RequestParam(name = "size",    required = false, defaultValue = "20")         Integer size,
+            @RequestParam(name = "cursor",  required = false)                              String cursor
+    ) {
+        var query = normalize(new ListQuery(tag, q, sortBy, sortDir, page, size, cursor));
+        return pageResponse(query, service.listPublic(query));
+    }
+
+    @PatchMapping(value = "/{id}/name", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public FileResponse rename(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @PathVariable("id") String id,
+            @RequestBody @Valid RenameRequest req
+    ) {
+        return from(service.rename(userId, id, req));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<FileResponse>> listByOwner(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(name = "tag", required = false) String tag,
+            @RequestParam(name = "q",   required = false) String q,
+            @RequestParam(name = "sortBy",  required = false, defaultValue = "CREATED_AT") ListQuery.SortBy sortBy,
+            @RequestParam(name = "sortDir", required = false, defaultValue = "DESC")       ListQuery.SortDir sortDir,
+            @RequestParam(name = "page",    required = false, defaultValue = "0")          Integer page,
+            @RequestParam(name = "size",    required = false, defaultValue = "20")         Integer size,
+            @RequestParam(name = "cursor",  required = false)                              String cursor
+    ) {
+        var query = normalize(new ListQuery(tag, q, sortBy, sortDir, page, size, cursor));
+        return pageResponse(query, service.listByOwner(userId, query));
+    }
+
+    /** A full page carries the keyset cursor for the next one in {@code X-Next-Cursor}. */
+    private static ResponseEntity<List<FileResponse>> pageResponse(ListQuery query, List<FileMetadata> items) {
+        var response = ResponseEntity.ok();
+        if (!items.isEmpty() && items.size() >= query.size()) {
+            String next = ListCursor.next(query, items.get(items.size() - 1));
+            if (next != null) response.header(NEXT_CURSOR_HEADER, next);
+        }
+        return response.body(items.stream().map(FileResponse::from).toList());
+    }
+
+    private static ListQuery normalize(ListQuery q) {
+        Integer pObj = q.page();
+        Integer sObj = q.size();
+
+        int page = (pObj == null || pObj < 0) ? 0 : pObj;
+        int size = (sObj == null || sObj <= 0) ? 20 : Math.min(sObj, 100);
+
+        var sortBy  = (q.sortBy()  != null) ? q.sortBy()  : ListQuery.SortBy.CREATED_AT;
+        var sortDir = (q.sortDir() != null) ? q.sortDir() : ListQuery.SortDir.DESC;
+
+        String cursor = (q.cursor() != null && !q.cursor().isBlank()) ? q.cursor() : null;
+
+        return new ListQuery(q.tag(), q.q(), sortBy, sortDir, page, size, cursor);
+    }
+
+    /**
+     * Deletes many files in one request; ids that are missing or someone else's are reported
+     * per id instead of failing the batch.
+     */
+    @PostMapping(value = "/delete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public BatchDeleteResponse deleteBatch(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestBody @Valid BatchDeleteRequest req
+    ) {
+        return BatchDeleteResponse.from(service.delete(userId, req.ids()));
+    }
+
+    @DeleteMapping("/{id}")
+    public java.util.Map<String, Boolean> delete(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @PathVariable("id") String id
+    ) {
+        boolean ok = service.delete(userId, id);
+        if (!ok) throw new com.digitalarkcorp.filestorage.api.errors.NotFoundException("file not found");
+        return java.util.Map.of("deleted", true);
+    }
+}
@@ -0,0 +1,158 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.digitalarkcorp.filestorage.api.DownloadHeaders.*;
+
+/**
+ * Download links on the reactive edge stack: same headers, validators and ranges as
+ * {@link DownloadController}, but the body is a {@code Flux<DataBuffer>} pulled from storage
+ * as fast as the client reads, with no thread held per connection.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDownloadController {
+
+    private static final int DECODE_BUFFER = 8192;
+
+    private final FileService service;
+    private final ReactiveStoragePort storage;
+
+    public ReactiveDownloadController(FileService service, ReactiveStoragePort storage) {
+        this.service = service;
+        this.storage = storage;
+    }
+
+    @GetMapping("/d/{linkId}")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> download(@PathVariable String linkId,
+                                                           @RequestHeader HttpHeaders requestHeaders) {
+        // the metadata lookup is blocking (Mongo, usually answered by the cache): keep it off the event loop
+        return Mono.fromCallable(() -> service.openDownload(linkId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(download -> respond(download, requestHeaders));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> respond(FileDownload download, HttpHeaders request) {
+        FileMetadata meta = download.metadata();
+        boolean stored = sendStored(request, meta);
+        if (notModified(request, meta, stored)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(validatorHeaders(meta, stored))
+                    .build();
+        }
+
+        if (stored) {
+            HttpHeaders headers = bodyHeaders(meta, true);
+            headers.setContentLength(meta.storedSize());
+            headers.setContentType(contentType(meta));
+            String key = ContentEncodings.objectKey(meta.contentHash(), meta.contentEncoding());
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(storage.get(key, 0, meta.storedSize()));
+        }
+
+        long size = meta.size();
+        List<HttpRange> ranges = requestedRanges(request, meta);
+        if (!ranges.isEmpty()) {
+            List<long[]> spans = spans(ranges, size);
+            if (spans.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, unsatisfiedRange(size))
+                        .build();
+            }
+            if (!cheaperWhole(spans, meta)) {
+                return partial(download, spans);
+            }
+        }
+
+        HttpHeaders headers = bodyHeaders(meta);
+        headers.setContentLength(size);
+        headers.setContentType(contentType(meta));
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(read(download, 0, size));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> partial(FileDownload download, List<long[]> spans) {
+        FileMetadata meta = download.metadata();
+        long size = meta.size();
+        MediaType ct = contentType(meta);
+        HttpHeaders headers = bodyHeaders(meta);
+
+        if (spans.size() == 1) {
+            long start = spans.get(0)[0];
+            long end = spans.get(0)[1];
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, size));
+            headers.setContentLength(end - start + 1);
+            headers.setContentType(ct);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(read(download, start, end - start + 1));
+        }
+
+        // multipart/byteranges: concat subscribes to each part only once the previous one completes
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<Flux<DataBuffer>> parts = new ArrayList<>();
+        long length = 0;
+        for (long[] span : spans) {
+            byte[] head = partHeader(boundary, ct, span, size);
+            long partLength = span[1] - span[0] + 1;
+            parts.add(wrap(head));
+            parts.add(read(download, span[0], partLength));
+            length += head.length + partLength;
+        }
+        byte[] tail = closingDelimiter(boundary);
+        parts.add(wrap(tail));
+        length += tail.length;
+
+        headers.setContentLength(length);
+        headers.setContentType(new MediaType("multipart", "byteranges", Map.of("boundary", boundary)));
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(Flux.concat(parts));
+    }
+
+    /**
+     * Verbatim blobs are read reactively; encoded ones are decoded by a blocking stream on the
+     * elastic pool, since only a client taking the stored coding can skip the decoding.
+     */
+    private Flux<DataBuffer> read(FileDownload download, long offset, long length) {
+        if (length == 0) return Flux.empty();
+        FileMetadata meta = download.metadata();
+        if (meta.contentEncoding() == null) {
+            return storage.get(meta.contentHash(), offset, length);
+        }
+        return DataBufferUtils.readInputStream(() -> download.open(offset, length).stream(),
+                        DefaultDataBufferFactory.sharedInstance, DECODE_BUFFER)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Flux<DataBuffer> wrap(byte[] bytes) {
+        return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)));
+    }
+}
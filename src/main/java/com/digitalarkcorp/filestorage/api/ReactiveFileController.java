@@ -0,0 +1,63 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.api.dto.FileResponse;
+import com.digitalarkcorp.filestorage.api.dto.UploadMetadata;
+import com.digitalarkcorp.filestorage.application.FileService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+
+/**
+ * Upload on the reactive edge stack. The file part is never buffered: its buffers are
+ * requested a few at a time as the regular upload path reads them, so the same hashing,
+ * dedup and conflict rules apply and a slow uploader only throttles itself.
+ */
+@Validated
+@RestController
+@RequestMapping("/files")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFileController {
+
+    /** Buffers requested ahead of the reader. */
+    private static final int DEMAND = 4;
+
+    private final FileService service;
+
+    public ReactiveFileController(FileService service) {
+        this.service = service;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<FileResponse> upload(
+            @RequestHeader("X-User-Id") @NotBlank String userId,
+            @RequestPart("metadata") @Valid UploadMetadata meta,
+            @RequestPart("file") FilePart file
+    ) {
+        MediaType partType = file.headers().getContentType();
+        String contentType = (partType != null) ? partType.toString() : null;
+        // -1 when the part carries no length; a known one lets small files be prehashed
+        long contentLength = file.headers().getContentLength();
+
+        // the upload path is blocking (storage client, Mongo): it reads the part on the elastic pool
+        return Mono.fromCallable(() -> {
+                    try (InputStream data = DataBufferUtils.subscriberInputStream(file.content(), DEMAND)) {
+                        return FileResponse.from(service.upload(
+                                userId, meta.filename(), meta.visibility(), meta.tags(), contentType, contentLength, data));
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
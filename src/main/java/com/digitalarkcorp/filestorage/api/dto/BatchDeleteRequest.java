@@ -0,0 +1,13 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchDeleteRequest(
+        @NotEmpty
+        @Size(max = 10_000, message = "at most 10000 ids per request")
+        List<@NotBlank String> ids
+) {}
@@ -0,0 +1,20 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import com.digitalarkcorp.filestorage.application.DeleteResult;
+
+import java.util.List;
+
+public record BatchDeleteResponse(
+        long deleted,
+        List<Item> results
+) {
+    public record Item(String id, DeleteResult.Outcome outcome) {}
+
+    public static BatchDeleteResponse from(List<DeleteResult> results) {
+        long deleted = results.stream().filter(r -> r.outcome() == DeleteResult.Outcome.DELETED).count();
+        return new BatchDeleteResponse(
+                deleted,
+                results.stream().map(r -> new Item(r.id(), r.outcome())).toList()
+        );
+    }
+}
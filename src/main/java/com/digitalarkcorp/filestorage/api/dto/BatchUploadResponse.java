@@ -0,0 +1,23 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import com.digitalarkcorp.filestorage.application.UploadResult;
+
+import java.util.List;
+
+public record BatchUploadResponse(
+        long created,
+        List<Item> results
+) {
+    public record Item(int index, String filename, UploadResult.Outcome outcome, FileResponse file, String error) {}
+
+    public static BatchUploadResponse from(List<UploadResult> results) {
+        long created = results.stream().filter(r -> r.outcome() == UploadResult.Outcome.CREATED).count();
+        return new BatchUploadResponse(
+                created,
+                results.stream()
+                        .map(r -> new Item(r.index(), r.filename(), r.outcome(),
+                                r.file() == null ? null : FileResponse.from(r.file()), r.error()))
+                        .toList()
+        );
+    }
+}
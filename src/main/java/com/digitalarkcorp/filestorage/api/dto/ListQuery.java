@@ -1,15 +1,20 @@
-package com.digitalarkcorp.filestorage.api.dto;
-
-public record ListQuery(
-        String tag,
-        String q,
-        SortBy sortBy,
-        SortDir sortDir,
-        Integer page,
-        Integer size
-
-) {
-    public enum SortBy { FILENAME, CREATED_AT, UPDATED_AT, SIZE, TAG, CONTENT_TYPE }
-
-    public enum SortDir { ASC, DESC }
-}
+package com.digitalarkcorp.filestorage.api.dto;
+
+public record ListQuery(
+        String tag,
+        String q,
+        SortBy sortBy,
+        SortDir sortDir,
+        Integer page,
+        Integer size,
+        String cursor
+
+) {
+    public ListQuery(String tag, String q, SortBy sortBy, SortDir sortDir, Integer page, Integer size) {
+        this(tag, q, sortBy, sortDir, page, size, null);
+    }
+
+    public enum SortBy { FILENAME, CREATED_AT, UPDATED_AT, SIZE, TAG, CONTENT_TYPE }
+
+    public enum SortDir { ASC, DESC }
+}
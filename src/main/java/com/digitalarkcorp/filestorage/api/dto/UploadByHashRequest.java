@@ -0,0 +1,28 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** Creates a file from content the server already has, identified by its SHA-256 and size. */
+public record UploadByHashRequest(
+        @NotBlank
+        @Size(max = 255, message = "filename must be ≤ 255 chars")
+        String filename,
+        @NotNull
+        Visibility visibility,
+        @Size(max = 5, message = "at most 5 tags")
+        List<@NotBlank String> tags,
+        String contentType,
+        @NotBlank
+        @Pattern(regexp = "[0-9a-fA-F]{64}", message = "sha256 must be 64 hex chars")
+        String sha256,
+        @NotNull
+        @Min(0)
+        Long size
+) {}
@@ -0,0 +1,23 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** Opens a resumable upload; {@code length} is optional and enforced when present. */
+public record UploadSessionRequest(
+        @NotBlank
+        @Size(max = 255, message = "filename must be ≤ 255 chars")
+        String filename,
+        @NotNull
+        Visibility visibility,
+        @Size(max = 5, message = "at most 5 tags")
+        List<@NotBlank String> tags,
+        String contentType,
+        @Min(0)
+        Long length
+) {}
@@ -0,0 +1,27 @@
+package com.digitalarkcorp.filestorage.api.dto;
+
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+
+import java.time.Instant;
+
+public record UploadSessionResponse(
+        String id,
+        String filename,
+        Long length,
+        long offset,
+        int nextChunk,
+        Instant createdAt,
+        Instant updatedAt
+) {
+    public static UploadSessionResponse from(UploadSession s) {
+        return new UploadSessionResponse(
+                s.id(),
+                s.filename(),
+                s.length() >= 0 ? s.length() : null,
+                s.offset(),
+                s.chunks(),
+                s.createdAt(),
+                s.updatedAt()
+        );
+    }
+}
@@ -1,5 +1,5 @@
-package com.digitalarkcorp.filestorage.api.errors;
-
-public class BadRequestException extends RuntimeException {
-    public BadRequestException(String message) { super(message); }
-}
+package com.digitalarkcorp.filestorage.api.errors;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) { super(message); }
+}
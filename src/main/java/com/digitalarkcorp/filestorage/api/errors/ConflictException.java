@@ -1,5 +1,5 @@
-package com.digitalarkcorp.filestorage.api.errors;
-
-public class ConflictException extends RuntimeException {
-    public ConflictException(String message) { super(message); }
-}
+package com.digitalarkcorp.filestorage.api.errors;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) { super(message); }
+}
@@ -1,3 +1,3 @@
-package com.digitalarkcorp.filestorage.api.errors;
-
-public record ErrorResponse(String error, String message) {}
+package com.digitalarkcorp.filestorage.api.errors;
+
+public record ErrorResponse(String error, String message) {}
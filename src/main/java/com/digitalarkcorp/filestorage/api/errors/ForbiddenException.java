@@ -1,5 +1,5 @@
-package com.digitalarkcorp.filestorage.api.errors;
-
-public class ForbiddenException extends RuntimeException {
-    public ForbiddenException(String message) { super(message); }
-}
+package com.digitalarkcorp.filestorage.api.errors;
+
+public class ForbiddenException extends RuntimeException {
+    public ForbiddenException(String message) { super(message); }
+}
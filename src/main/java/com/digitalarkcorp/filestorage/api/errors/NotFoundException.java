@@ -1,5 +1,5 @@
-package com.digitalarkcorp.filestorage.api.errors;
-
-public class NotFoundException extends RuntimeException {
-    public NotFoundException(String message) { super(message); }
-}
+package com.digitalarkcorp.filestorage.api.errors;
+
+public class NotFoundException extends RuntimeException {
+    public NotFoundException(String message) { super(message); }
+}
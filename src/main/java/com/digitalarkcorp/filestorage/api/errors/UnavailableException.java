@@ -0,0 +1,15 @@
+package com.digitalarkcorp.filestorage.api.errors;
+
+import java.time.Duration;
+
+/** The request can succeed shortly; answered with 503 and a {@code Retry-After} of {@code retryAfter}. */
+public class UnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public UnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() { return retryAfter; }
+}
@@ -0,0 +1,131 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.domain.Blob;
+import com.digitalarkcorp.filestorage.domain.ports.BlobRepository;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deletes the objects of blobs that have had no references for longer than the grace period.
+ * Each blob is claimed first, which holds off new references until its object is gone.
+ */
+@Slf4j
+public class BlobCollector {
+
+    private final BlobRepository blobs;
+    private final MetadataRepository files;
+    private final StoragePort storage;
+    private final Clock clock;
+    private final Duration gracePeriod;
+    private final MeterRegistry meters;
+    private volatile String reconciledUpTo;
+
+    public BlobCollector(BlobRepository blobs, MetadataRepository files, StoragePort storage,
+                         Clock clock, Duration gracePeriod) {
+        this(blobs, files, storage, clock, gracePeriod, new CompositeMeterRegistry());
+    }
+
+    /** Counts objects that could not be deleted in {@code blobs.collect.failed}. */
+    public BlobCollector(BlobRepository blobs, MetadataRepository files, StoragePort storage,
+                         Clock clock, Duration gracePeriod, MeterRegistry meters) {
+        this.blobs = blobs;
+        this.files = files;
+        this.storage = storage;
+        this.clock = clock;
+        this.gracePeriod = gracePeriod;
+        this.meters = meters;
+    }
+
+    /**
+     * Returns the number of blobs deleted. Files are re-counted and objects deleted in one
+     * request each for the whole batch of claimed blobs.
+     */
+    public int collect(int max) {
+        Instant now = Instant.now(clock);
+        Instant releasedBefore = now.minus(gracePeriod);
+        List<Blob> claimed = new ArrayList<>();
+        for (int i = 0; i < max; i++) {
+            Blob blob = blobs.claimCollectable(releasedBefore, now);
+            if (blob == null) break;
+            claimed.add(blob);
+        }
+        if (claimed.isEmpty()) return 0;
+
+        // only files written before references were counted can still point at them
+        Map<String, Long> refs = files.countByContentHashes(claimed.stream().map(Blob::hash).toList());
+        List<Blob> unreferenced = new ArrayList<>();
+        for (Blob blob : claimed) {
+            long n = refs.getOrDefault(blob.hash(), 0L);
+            if (n > 0) {
+                blobs.restore(blob.hash(), n, true, now);
+            } else {
+                unreferenced.add(blob);
+            }
+        }
+
+        // every coding, including copies of writers that lost the race to mark the blob
+        List<String> keys = new ArrayList<>();
+        for (Blob blob : unreferenced) {
+            keys.addAll(ContentEncodings.objectKeys(blob.hash()));
+        }
+        Set<String> failed;
+        try {
+            failed = new HashSet<>(storage.delete(keys));
+        } catch (RuntimeException e) {
+            log.warn("Could not delete the objects of {} unreferenced blobs", unreferenced.size(), e);
+            failed = new HashSet<>(keys);
+        }
+        if (!failed.isEmpty()) {
+            meters.counter("blobs.collect.failed").increment(failed.size());
+        }
+
+        int deleted = 0;
+        for (Blob blob : unreferenced) {
+            if (ContentEncodings.objectKeys(blob.hash()).stream().anyMatch(failed::contains)) {
+                // the object may or may not be gone: the next uploader writes it again
+                blobs.restore(blob.hash(), 0, false, now);
+                continue;
+            }
+            blobs.delete(blob.hash());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Sets the reference count of up to {@code max} blobs to the number of files that point at
+     * them, continuing where the previous run stopped and starting over after the last blob.
+     * This repairs counts left too high by a release that failed, so their blobs get collected.
+     * Only blobs unchanged for the grace period are looked at, which keeps uploads that have
+     * taken a reference but not yet saved their file out of it. Returns the number corrected.
+     */
+    public int reconcile(int max) {
+        Instant now = Instant.now(clock);
+        List<Blob> page = blobs.findSettled(reconciledUpTo, now.minus(gracePeriod), max);
+        reconciledUpTo = page.size() < max ? null : page.get(page.size() - 1).hash();
+        if (page.isEmpty()) return 0;
+
+        Map<String, Long> refs = files.countByContentHashes(page.stream().map(Blob::hash).toList());
+        int corrected = 0;
+        for (Blob blob : page) {
+            long n = refs.getOrDefault(blob.hash(), 0L);
+            if (n != blob.refs() && blobs.correct(blob, n, now)) {
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+}
@@ -1,146 +1,588 @@
-package com.digitalarkcorp.filestorage.application;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
-import com.digitalarkcorp.filestorage.api.errors.ConflictException;
-import com.digitalarkcorp.filestorage.api.errors.NotFoundException;
-import com.digitalarkcorp.filestorage.application.util.FileQueries;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.time.Clock;
-import java.time.Instant;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
-
-public class DefaultFileService implements FileService {
-
-    private final MetadataRepository repository;
-    private final StoragePort storage;
-    private final Clock clock;
-
-    public DefaultFileService(MetadataRepository repository, StoragePort storage, Clock clock) {
-        this.repository = repository;
-        this.storage = storage;
-        this.clock = clock;
-    }
-
-    public FileMetadata upload(String ownerId, String filename, Visibility visibility,
-                               List<String> tags, String contentType, long contentLength, InputStream data) {
-        try {
-            if (tags != null && tags.size() > 5) {
-                throw new IllegalArgumentException("too many tags");
-            }
-
-            String normName = FileQueries.normalizeFilename(filename);
-
-            java.nio.file.Path tmp = java.nio.file.Files.createTempFile("fs-", ".bin");
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
-            try (java.io.OutputStream out = java.nio.file.Files.newOutputStream(tmp, java.nio.file.StandardOpenOption.TRUNCATE_EXISTING)) {
-                byte[] buf = new byte[8192];
-                int r;
-                while ((r = data.read(buf)) != -1) {
-                    md.update(buf, 0, r);
-                    out.write(buf, 0, r);
-                }
-            }
-            String hash = java.util.HexFormat.of().formatHex(md.digest());
-            long size = java.nio.file.Files.size(tmp);
-
-            if (repository.existsByOwnerAndFilename(ownerId, normName)) {
-                java.nio.file.Files.deleteIfExists(tmp);
-                throw new ConflictException("filename already exists for owner");
-            }
-            if (repository.existsByOwnerAndContentHash(ownerId, hash)) {
-                java.nio.file.Files.deleteIfExists(tmp);
-                throw new ConflictException("content already exists for owner");
-            }
-
-            if (contentType == null || contentType.isBlank()) {
-                String probed = java.nio.file.Files.probeContentType(tmp);
-                contentType = (probed != null) ? probed : "application/octet-stream";
-            }
-
-            String objectKey = hash;
-            try (java.io.InputStream in = java.nio.file.Files.newInputStream(tmp)) {
-                storage.put(objectKey, in, size, contentType);
-            } finally {
-                java.nio.file.Files.deleteIfExists(tmp);
-            }
-
-            java.time.Instant now = java.time.Instant.now(clock);
-            FileMetadata meta = new FileMetadata(
-                    null, ownerId, normName, visibility, tags, size, contentType, hash,
-                    java.util.UUID.randomUUID().toString(),
-                    FileMetadata.FileStatus.READY, now, now);
-            return repository.save(meta);
-        } catch (java.io.IOException e) {
-            throw new RuntimeException("upload io error", e);
-        } catch (java.security.NoSuchAlgorithmException e) {
-            throw new RuntimeException("sha256 error", e);
-        }
-    }
-
-    @Override
-    public List<FileMetadata> listPublic(ListQuery query) {
-        return repository.listPublic(query);
-    }
-
-    @Override
-    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
-        return repository.listByOwner(ownerId, query);
-    }
-
-    @Override
-    public FileMetadata rename(String userId, String id, RenameRequest req) {
-        FileMetadata meta = repository.findById(id);
-        if (meta == null) throw new NotFoundException("file not found");
-        if (!Objects.equals(meta.ownerId(), userId)) {
-            throw new SecurityException("not owner");
-        }
-        String newName = FileQueries.normalizeFilename(req.newFilename());
-        if (repository.existsByOwnerAndFilename(userId, newName)) {
-            throw new ConflictException("filename already exists for owner");
-        }
-        repository.rename(id, newName, Instant.now(clock));
-        return repository.findById(id);
-    }
-
-    @Override
-    public boolean delete(String userId, String id) {
-        FileMetadata meta = repository.findById(id);
-        if (meta == null) throw new NotFoundException("file not found");
-        if (!Objects.equals(meta.ownerId(), userId)) {
-            throw new SecurityException("not owner");
-        }
-        boolean deleted = repository.deleteByIdAndOwner(id, userId);
-        if (deleted) {
-            long remaining = repository.countByContentHash(meta.contentHash());
-            if (remaining == 0) {
-                try {
-                    storage.delete(meta.contentHash());
-                } catch (RuntimeException ignored) {
-                }
-            }
-        }
-        return deleted;
-    }
-
-    @Override
-    public StoragePort.Resource getForDownload(String linkId) {
-        FileMetadata meta = repository.findByLinkId(linkId);
-        if (meta == null) throw new NotFoundException("file not found");
-        return storage.get(meta.contentHash());
-    }
-
-    @Override
-    public FileMetadata findByLinkId(String linkId) {
-        return repository.findByLinkId(linkId);
-    }
-}
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.api.errors.NotFoundException;
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.application.util.ContentSniffer;
+import com.digitalarkcorp.filestorage.application.util.FileQueries;
+import com.digitalarkcorp.filestorage.application.util.GzipEncodingInputStream;
+import com.digitalarkcorp.filestorage.application.util.HashingInputStream;
+import com.digitalarkcorp.filestorage.domain.Blob;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.BlobRepository;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Slf4j
+public class DefaultFileService implements FileService {
+
+    private static final String PROVISIONAL_PREFIX = "tmp/";
+
+    private static final int MAX_FILENAME_LENGTH = 255;
+    private static final int MAX_TAGS = 5;
+
+    private final MetadataRepository repository;
+    private final BlobRepository blobs;
+    private final StoragePort storage;
+    private final Clock clock;
+    private final MeterRegistry meters;
+    private final long prehashLimit;
+    private final boolean compress;
+    private final int batchConcurrency;
+    private final Semaphore prehashBudget;
+
+    /**
+     * Records {@code upload.phase} timers (spool, hash, dedup, commit, save) and
+     * {@code upload.bytes}, plus time to first byte and bytes served per download.
+     */
+    public DefaultFileService(MetadataRepository repository, BlobRepository blobs, StoragePort storage, Clock clock,
+                              MeterRegistry meters, UploadOptions options) {
+        this.repository = repository;
+        this.blobs = blobs;
+        this.storage = storage;
+        this.clock = clock;
+        this.meters = meters;
+        this.prehashLimit = options.prehashLimit();
+        this.compress = options.compress();
+        this.batchConcurrency = options.batchConcurrency();
+        this.prehashBudget = new Semaphore((int) options.prehashBudget());
+    }
+
+    public FileMetadata upload(String ownerId, String filename, Visibility visibility,
+                               List<String> tags, String contentType, long contentLength, InputStream data) {
+        FileMetadata meta = prepare(ownerId, filename, visibility, tags, contentType, contentLength, data);
+        // the unique (owner, filename) and (owner, contentHash) indexes decide duplicates in this
+        // single insert; a rejected file gives back the reference taken on its blob
+        FileMetadata saved = save(meta);
+        meters.summary("upload.bytes").record(saved.size());
+        return saved;
+    }
+
+    @Override
+    public FileMetadata commitStaged(String ownerId, String filename, Visibility visibility, List<String> tags,
+                                     String contentType, String sha256, long size, String stagedKey) {
+        String normName;
+        String ct;
+        try {
+            if (tags != null && tags.size() > 5) {
+                throw new IllegalArgumentException("too many tags");
+            }
+            normName = FileQueries.normalizeFilename(filename);
+            ct = (contentType == null || contentType.isBlank()) ? sniff(stagedKey, size, normName) : contentType;
+        } catch (RuntimeException e) {
+            discard(stagedKey);
+            throw e;
+        }
+
+        // stored verbatim: the staged bytes are never re-read to be encoded
+        Stored stored = commitProvisional(stagedKey, sha256.toLowerCase(Locale.ROOT), size, null, size);
+        Instant now = Instant.now(clock);
+        FileMetadata meta = new FileMetadata(
+                null, ownerId, normName, visibility, tags, size, ct, stored.hash(),
+                UUID.randomUUID().toString(),
+                FileMetadata.FileStatus.READY, now, now, stored.encoding(), stored.storedSize());
+        FileMetadata saved = save(meta);
+        meters.summary("upload.bytes").record(size);
+        return saved;
+    }
+
+    /** Detects the type from a range read of the object's head. */
+    private String sniff(String objectKey, long size, String filename) {
+        InputStream range = size > 0
+                ? storage.get(objectKey, 0, Math.min(size, ContentSniffer.SNIFF_BYTES)).stream()
+                : InputStream.nullInputStream();
+        try (BufferedInputStream head = new BufferedInputStream(range, ContentSniffer.SNIFF_BYTES)) {
+            return ContentSniffer.detect(head, filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<UploadResult> uploadAll(String ownerId, List<UploadItem> items) {
+        int n = items.size();
+        UploadResult[] results = new UploadResult[n];
+        List<FileMetadata> prepared = new ArrayList<>(n);
+        List<Integer> positions = new ArrayList<>(n);
+
+        // storage writes are mostly waiting on the backend, so the workers are virtual threads;
+        // the pool size is what bounds the batch
+        List<Future<FileMetadata>> pending = new ArrayList<>(n);
+        try (ExecutorService workers = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(n, batchConcurrency)), Thread.ofVirtual().name("upload-", 0).factory())) {
+            for (UploadItem item : items) {
+                pending.add(workers.submit(() -> {
+                    check(item);
+                    try (InputStream data = item.data().get()) {
+                        return prepare(ownerId, item.filename(), item.visibility(), item.tags(),
+                                item.contentType(), item.contentLength(), data);
+                    }
+                }));
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            try {
+                prepared.add(pending.get(i).get());
+                positions.add(i);
+            } catch (ExecutionException e) {
+                results[i] = rejected(i, items.get(i).filename(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[i] = rejected(i, items.get(i).filename(), e);
+            }
+        }
+
+        if (!prepared.isEmpty()) {
+            saveAll(prepared, positions, results);
+        }
+        return List.of(results);
+    }
+
+    /** One bulk insert for the stored files; rejected ones give back their blob references together. */
+    private void saveAll(List<FileMetadata> prepared, List<Integer> positions, UploadResult[] results) {
+        List<MetadataRepository.Saved> saved;
+        try {
+            saved = phase("save", () -> repository.saveAll(prepared));
+        } catch (RuntimeException e) {
+            log.warn("Saving {} files of a batch upload failed", prepared.size(), e);
+            releaseAll(countByHash(prepared));
+            for (int i = 0; i < prepared.size(); i++) {
+                int index = positions.get(i);
+                results[index] = UploadResult.rejected(index, prepared.get(i).filename(), e);
+            }
+            return;
+        }
+
+        List<FileMetadata> rejected = new ArrayList<>();
+        for (int i = 0; i < prepared.size(); i++) {
+            int index = positions.get(i);
+            MetadataRepository.Saved s = saved.get(i);
+            if (s.error() == null) {
+                results[index] = UploadResult.created(index, s.file());
+                meters.summary("upload.bytes").record(s.file().size());
+            } else {
+                results[index] = rejected(index, prepared.get(i).filename(), s.error());
+                rejected.add(prepared.get(i));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            releaseAll(countByHash(rejected));
+        }
+    }
+
+    /**
+     * The constraints {@code POST /files} puts on its metadata, checked per file so one bad
+     * entry is reported as {@code INVALID} instead of failing the whole batch.
+     */
+    private static void check(UploadItem item) {
+        String filename = item.filename();
+        if (filename == null || filename.isBlank()) {
+            throw new IllegalArgumentException("filename required");
+        }
+        if (filename.length() > MAX_FILENAME_LENGTH) {
+            throw new IllegalArgumentException("filename must be ≤ " + MAX_FILENAME_LENGTH + " chars");
+        }
+        if (item.visibility() == null) {
+            throw new IllegalArgumentException("visibility required");
+        }
+        List<String> tags = item.tags();
+        if (tags != null && tags.size() > MAX_TAGS) {
+            throw new IllegalArgumentException("at most " + MAX_TAGS + " tags");
+        }
+        if (tags != null && tags.stream().anyMatch(t -> t == null || t.isBlank())) {
+            throw new IllegalArgumentException("tags must not be blank");
+        }
+    }
+
+    /** Failures that are not the client's doing are logged with their cause, which the response leaves out. */
+    private static UploadResult rejected(int index, String filename, Throwable e) {
+        UploadResult result = UploadResult.rejected(index, filename, e);
+        if (result.outcome() == UploadResult.Outcome.FAILED) {
+            log.warn("Batch upload of file {} ({}) failed", index, filename, e);
+        }
+        return result;
+    }
+
+    private static Map<String, Long> countByHash(List<FileMetadata> files) {
+        Map<String, Long> counts = new HashMap<>();
+        for (FileMetadata m : files) {
+            counts.merge(m.contentHash(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Validates, hashes and stores an upload's content, holding a reference on its blob; the
+     * returned record is not saved yet.
+     */
+    private FileMetadata prepare(String ownerId, String filename, Visibility visibility,
+                                 List<String> tags, String contentType, long contentLength, InputStream data) {
+        if (tags != null && tags.size() > MAX_TAGS) {
+            throw new IllegalArgumentException("too many tags");
+        }
+
+        String normName = FileQueries.normalizeFilename(filename);
+
+        // sniffed from the buffered head of the same stream that is hashed and stored below
+        InputStream source = data;
+        if (contentType == null || contentType.isBlank()) {
+            BufferedInputStream buffered = new BufferedInputStream(data, ContentSniffer.SNIFF_BYTES);
+            contentType = ContentSniffer.detect(buffered, normName);
+            source = buffered;
+        }
+        String ct = contentType;
+
+        // blobs are keyed by content hash and shared across owners: content already stored
+        // by anyone only gets a metadata record
+        HashingInputStream hashing = new HashingInputStream(source);
+        Stored stored;
+        if (contentLength >= 0 && contentLength <= prehashLimit) {
+            if (prehashBudget.tryAcquire((int) contentLength)) {
+                try {
+                    stored = storeBuffered(hashing, contentLength, ct);
+                } finally {
+                    prehashBudget.release((int) contentLength);
+                }
+            } else {
+                meters.counter("upload.prehash.exhausted").increment();
+                stored = storeStreamed(hashing, contentLength, ct);
+            }
+        } else {
+            stored = storeStreamed(hashing, contentLength, ct);
+        }
+        long size = hashing.count();
+
+        Instant now = Instant.now(clock);
+        return new FileMetadata(
+                null, ownerId, normName, visibility, tags, size, ct, stored.hash(),
+                UUID.randomUUID().toString(),
+                FileMetadata.FileStatus.READY, now, now, stored.encoding(), stored.storedSize());
+    }
+
+    @Override
+    public FileMetadata uploadByHash(String ownerId, String filename, Visibility visibility, List<String> tags,
+                                     String contentType, String sha256, long size) {
+        if (tags != null && tags.size() > 5) {
+            throw new IllegalArgumentException("too many tags");
+        }
+        String hash = sha256.toLowerCase(Locale.ROOT);
+        FileMetadata source = repository.findReadableByContentHash(ownerId, hash);
+        if (source == null || source.size() != size) {
+            throw new NotFoundException("content not found");
+        }
+
+        Instant now = Instant.now(clock);
+        // the matched file proves the object exists, even if it predates reference counting
+        Blob blob = blobs.acquire(hash, size, now);
+        if (!blob.stored()) {
+            blob = blobs.markStored(hash, source.contentEncoding(), source.storedSize());
+        }
+
+        String ct = (contentType == null || contentType.isBlank()) ? source.contentType() : contentType;
+        FileMetadata meta = new FileMetadata(
+                null, ownerId, FileQueries.normalizeFilename(filename), visibility, tags, size, ct, hash,
+                UUID.randomUUID().toString(),
+                FileMetadata.FileStatus.READY, now, now, blob.encoding(), blob.storedSize());
+        return save(meta);
+    }
+
+    private FileMetadata save(FileMetadata meta) {
+        try {
+            return phase("save", () -> repository.save(meta));
+        } catch (RuntimeException e) {
+            release(meta.contentHash());
+            throw e;
+        }
+    }
+
+    /**
+     * Blobs with a record are deleted by the {@link BlobCollector} once unreferenced; those stored
+     * before references were counted keep the old count-and-delete.
+     */
+    private void release(String hash) {
+        try {
+            if (blobs.release(hash, Instant.now(clock)) < 0 && repository.countByContentHash(hash) == 0) {
+                discard(hash);
+            }
+        } catch (RuntimeException e) {
+            // the count stays too high until BlobCollector#reconcile corrects it
+            releaseFailed(1, e);
+        }
+    }
+
+    private void releaseFailed(int blobCount, RuntimeException e) {
+        log.warn("Could not release {} blobs", blobCount, e);
+        meters.counter("blobs.release.failed").increment(blobCount);
+    }
+
+    /** Where an upload's content ended up: the blob's coding, which may be another uploader's choice. */
+    private record Stored(String hash, String encoding, long storedSize) {
+
+        static Stored of(Blob blob) {
+            return new Stored(blob.hash(), blob.encoding(), blob.storedSize());
+        }
+    }
+
+    /** Small bodies are hashed in memory first, so known content is never sent to the backend. */
+    private Stored storeBuffered(HashingInputStream hashing, long contentLength, String ct) {
+        byte[] body = phase("spool", () -> {
+            try {
+                byte[] read = hashing.readNBytes((int) contentLength);
+                // a body of another length would be stored, and deduplicated, as something else
+                if (read.length != contentLength || hashing.read() != -1) {
+                    throw new IllegalArgumentException("body does not match its declared length");
+                }
+                return read;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        String hash = digest(hashing);
+        Blob blob = phase("dedup", () -> blobs.acquire(hash, body.length, Instant.now(clock)));
+        if (blob.stored()) {
+            return Stored.of(blob);
+        }
+        try {
+            byte[] encoded = compress && ContentEncodings.compressible(ct)
+                    ? phase("encode", () -> ContentEncodings.gzip(body))
+                    : null;
+            boolean keepEncoded = encoded != null && ContentEncodings.worthKeeping(encoded.length, body.length);
+            String encoding = keepEncoded ? ContentEncodings.GZIP : null;
+            byte[] bytes = keepEncoded ? encoded : body;
+            String key = ContentEncodings.objectKey(hash, encoding);
+            // the key is the content hash, so concurrent first uploads write the same bytes
+            phase("commit", () -> storage.put(key, new ByteArrayInputStream(bytes), bytes.length, ct));
+            return markStored(hash, key, encoding, bytes.length);
+        } catch (RuntimeException e) {
+            release(hash);
+            throw e;
+        }
+    }
+
+    /**
+     * Large or unknown-length bodies stream to a provisional key while hashing, then are moved
+     * to the content-hash key, or dropped when that blob already exists.
+     */
+    private Stored storeStreamed(HashingInputStream hashing, long contentLength, String ct) {
+        String provisionalKey = PROVISIONAL_PREFIX + UUID.randomUUID();
+        // compressed while streamed; the encoded length is only known once it is written
+        GzipEncodingInputStream encoded = compress && ContentEncodings.compressible(ct)
+                ? new GzipEncodingInputStream(hashing)
+                : null;
+        try {
+            phase("spool", () -> storage.put(provisionalKey,
+                    encoded != null ? encoded : hashing, encoded != null ? -1 : contentLength, ct));
+        } catch (RuntimeException e) {
+            discard(provisionalKey);
+            throw e;
+        }
+        String hash = digest(hashing);
+        String encoding = encoded != null ? ContentEncodings.GZIP : null;
+        long storedSize = encoded != null ? encoded.count() : hashing.count();
+        return commitProvisional(provisionalKey, hash, hashing.count(), encoding, storedSize);
+    }
+
+    /** Moves a provisional object to its content-hash key, or drops it when the blob already exists. */
+    private Stored commitProvisional(String provisionalKey, String hash, long size, String encoding, long storedSize) {
+        try {
+            Blob blob = phase("dedup", () -> blobs.acquire(hash, size, Instant.now(clock)));
+            if (blob.stored()) {
+                discard(provisionalKey);
+                return Stored.of(blob);
+            }
+        } catch (RuntimeException e) {
+            discard(provisionalKey);
+            throw e;
+        }
+        String key = ContentEncodings.objectKey(hash, encoding);
+        try {
+            phase("commit", () -> storage.move(provisionalKey, key));
+            return markStored(hash, key, encoding, storedSize);
+        } catch (RuntimeException e) {
+            discard(provisionalKey);
+            release(hash);
+            throw e;
+        }
+    }
+
+    /**
+     * Concurrent first uploads may have picked different codings; the first to be marked is
+     * the blob, and a writer whose copy lost removes it.
+     */
+    private Stored markStored(String hash, String key, String encoding, long storedSize) {
+        Blob blob = blobs.markStored(hash, encoding, storedSize);
+        if (blob == null) {
+            return new Stored(hash, encoding, storedSize);
+        }
+        if (!Objects.equals(blob.encoding(), encoding)) {
+            discard(key);
+        }
+        return Stored.of(blob);
+    }
+
+    private String digest(HashingInputStream hashing) {
+        // digest CPU time is part of spool; recorded apart to tell hashing from slow I/O
+        phaseTimer("hash", "success").record(hashing.digestNanos(), TimeUnit.NANOSECONDS);
+        return hashing.hash();
+    }
+
+    private <T> T phase(String name, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meters);
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } catch (ConflictException e) {
+            outcome = "conflict";
+            throw e;
+        } finally {
+            sample.stop(phaseTimer(name, outcome));
+        }
+    }
+
+    private void phase(String name, Runnable action) {
+        phase(name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private Timer phaseTimer(String name, String outcome) {
+        return meters.timer("upload.phase", "phase", name, "outcome", outcome);
+    }
+
+    private void discard(String objectKey) {
+        try {
+            storage.delete(objectKey);
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    @Override
+    public List<FileMetadata> listPublic(ListQuery query) {
+        return repository.listPublic(query);
+    }
+
+    @Override
+    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
+        return repository.listByOwner(ownerId, query);
+    }
+
+    @Override
+    public FileMetadata rename(String userId, String id, RenameRequest req) {
+        FileMetadata meta = repository.findById(id);
+        if (meta == null) throw new NotFoundException("file not found");
+        if (!Objects.equals(meta.ownerId(), userId)) {
+            throw new SecurityException("not owner");
+        }
+        String newName = FileQueries.normalizeFilename(req.newFilename());
+        repository.rename(id, newName, Instant.now(clock));
+        return repository.findById(id);
+    }
+
+    @Override
+    public boolean delete(String userId, String id) {
+        FileMetadata meta = repository.findById(id);
+        if (meta == null) throw new NotFoundException("file not found");
+        if (!Objects.equals(meta.ownerId(), userId)) {
+            throw new SecurityException("not owner");
+        }
+        boolean deleted = repository.deleteByIdAndOwner(id, userId);
+        if (deleted) {
+            release(meta.contentHash());
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<DeleteResult> delete(String userId, Collection<String> ids) {
+        List<String> distinct = ids.stream().distinct().toList();
+        Map<String, FileMetadata> found = new HashMap<>();
+        for (FileMetadata m : repository.findAllById(distinct)) {
+            found.put(m.id(), m);
+        }
+
+        List<DeleteResult> results = new ArrayList<>(distinct.size());
+        Map<String, Long> released = new HashMap<>();
+        for (String id : distinct) {
+            FileMetadata m = found.get(id);
+            if (m == null) {
+                results.add(new DeleteResult(id, DeleteResult.Outcome.NOT_FOUND));
+            } else if (!Objects.equals(m.ownerId(), userId)) {
+                results.add(new DeleteResult(id, DeleteResult.Outcome.FORBIDDEN));
+            } else if (repository.deleteByIdAndOwner(id, userId)) {
+                // deleted one by one so each reference is dropped by the request that removed
+                // its file; a concurrent delete that got there first releases it instead
+                results.add(new DeleteResult(id, DeleteResult.Outcome.DELETED));
+                released.merge(m.contentHash(), 1L, Long::sum);
+            } else {
+                results.add(new DeleteResult(id, DeleteResult.Outcome.NOT_FOUND));
+            }
+        }
+        if (!released.isEmpty()) {
+            releaseAll(released);
+        }
+        return results;
+    }
+
+    /** {@link #release} for many blobs: one bulk release, and one count for blobs without a record. */
+    private void releaseAll(Map<String, Long> counts) {
+        try {
+            Set<String> unrecorded = blobs.release(counts, Instant.now(clock));
+            if (unrecorded.isEmpty()) return;
+            Map<String, Long> remaining = repository.countByContentHashes(unrecorded);
+            List<String> orphaned = unrecorded.stream()
+                    .filter(hash -> remaining.getOrDefault(hash, 0L) == 0)
+                    .toList();
+            if (!orphaned.isEmpty()) {
+                storage.delete(orphaned);
+            }
+        } catch (RuntimeException e) {
+            releaseFailed(counts.size(), e);
+        }
+    }
+
+    @Override
+    public StoragePort.Resource getForDownload(String linkId) {
+        return openDownload(linkId).open();
+    }
+
+    @Override
+    public FileDownload openDownload(String linkId) {
+        long start = System.nanoTime();
+        FileMetadata meta = repository.findByLinkId(linkId);
+        if (meta == null) throw new NotFoundException("file not found");
+        return new FileDownload(meta, storage, meters, start);
+    }
+}
@@ -0,0 +1,237 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.api.errors.NotFoundException;
+import com.digitalarkcorp.filestorage.application.util.FileQueries;
+import com.digitalarkcorp.filestorage.application.util.HashingInputStream;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.domain.ports.UploadSessionRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DefaultUploadSessionService implements UploadSessionService {
+
+    private static final String CHUNK_PREFIX = "uploads/";
+    private static final String CHUNK_CONTENT_TYPE = "application/octet-stream";
+
+    private final UploadSessionRepository sessions;
+    private final MetadataRepository repository;
+    private final StoragePort storage;
+    private final FileService files;
+    private final Clock clock;
+
+    /**
+     * SHA-256 state after the last committed chunk of each session. It is only a shortcut:
+     * when it is missing or stale (restart, another instance took the chunk) the digest is
+     * rebuilt from the stored chunks.
+     */
+    private final Map<String, Progress> progress = new ConcurrentHashMap<>();
+
+    private record Progress(int chunks, MessageDigest digest) {}
+
+    public DefaultUploadSessionService(UploadSessionRepository sessions, MetadataRepository repository,
+                                       StoragePort storage, FileService files, Clock clock) {
+        this.sessions = sessions;
+        this.repository = repository;
+        this.storage = storage;
+        this.files = files;
+        this.clock = clock;
+    }
+
+    @Override
+    public UploadSession create(String ownerId, String filename, Visibility visibility,
+                                List<String> tags, String contentType, long length) {
+        if (tags != null && tags.size() > 5) {
+            throw new IllegalArgumentException("too many tags");
+        }
+        if (length < -1) {
+            throw new IllegalArgumentException("invalid length");
+        }
+
+        String normName = FileQueries.normalizeFilename(filename);
+        if (repository.existsByOwnerAndFilename(ownerId, normName)) {
+            throw new ConflictException("filename already exists for owner");
+        }
+
+        Instant now = Instant.now(clock);
+        return sessions.save(new UploadSession(
+                null, ownerId, normName, visibility, tags, contentType, length, 0, List.of(), now, now));
+    }
+
+    @Override
+    public UploadSession get(String ownerId, String sessionId) {
+        return load(ownerId, sessionId);
+    }
+
+    @Override
+    public UploadSession putChunk(String ownerId, String sessionId, int index, long contentLength, InputStream data) {
+        UploadSession s = load(ownerId, sessionId);
+        if (index != s.chunks()) {
+            throw new ConflictException("expected chunk " + s.chunks());
+        }
+        if (s.length() >= 0 && contentLength >= 0 && s.offset() + contentLength > s.length()) {
+            throw new IllegalArgumentException("chunk exceeds declared length");
+        }
+
+        // each attempt gets its own key, so a losing concurrent or replayed write never
+        // overwrites the chunk that was committed
+        String chunkKey = CHUNK_PREFIX + s.id() + "/" + index + "-" + UUID.randomUUID();
+        MessageDigest md = digestAt(s);
+        HashingInputStream hashing = new HashingInputStream(data, md);
+        try {
+            storage.put(chunkKey, hashing, contentLength, CHUNK_CONTENT_TYPE);
+        } catch (RuntimeException e) {
+            discard(chunkKey);
+            throw e;
+        }
+        long written = hashing.count();
+
+        if (s.length() >= 0 && s.offset() + written > s.length()) {
+            discard(chunkKey);
+            throw new IllegalArgumentException("chunk exceeds declared length");
+        }
+        if (!sessions.appendChunk(s.id(), index, chunkKey, written, Instant.now(clock))) {
+            discard(chunkKey);
+            throw new ConflictException("chunk " + index + " already committed");
+        }
+
+        progress.merge(s.id(), new Progress(index + 1, md),
+                (old, next) -> old.chunks() >= next.chunks() ? old : next);
+        return sessions.findById(s.id());
+    }
+
+    @Override
+    public FileMetadata complete(String ownerId, String sessionId) {
+        UploadSession s = load(ownerId, sessionId);
+        if (s.length() >= 0 && s.offset() != s.length()) {
+            throw new IllegalArgumentException("upload incomplete");
+        }
+
+        // answered from the incremental digest before any chunk is read back
+        String hash = HexFormat.of().formatHex(digestAt(s).digest());
+        if (repository.existsByOwnerAndContentHash(ownerId, hash)) {
+            cleanup(s);
+            throw new ConflictException("content already exists for owner");
+        }
+
+        // the chunks are joined where they are stored and the digest above is the hash: the
+        // bytes are neither read back nor re-hashed, and the file path re-checks the rules
+        String assembled = CHUNK_PREFIX + s.id() + "/assembled-" + UUID.randomUUID();
+        try {
+            storage.compose(s.chunkKeys(), assembled);
+        } catch (RuntimeException e) {
+            discard(assembled);
+            throw e;
+        }
+        FileMetadata meta;
+        try {
+            meta = files.commitStaged(ownerId, s.filename(), s.visibility(), s.tags(),
+                    s.contentType(), hash, s.offset(), assembled);
+        } catch (ConflictException | IllegalArgumentException e) {
+            cleanup(s);
+            throw e;
+        }
+        cleanup(s);
+        return meta;
+    }
+
+    /**
+     * Sessions expire in the repository once idle; this deletes the chunk objects they leave
+     * behind, along with chunks of failed writes, and forgets their digests.
+     */
+    @Override
+    public int sweep() {
+        Map<String, List<String>> bySession = new HashMap<>();
+        for (String key : storage.list(CHUNK_PREFIX)) {
+            String rest = key.substring(CHUNK_PREFIX.length());
+            int slash = rest.indexOf('/');
+            if (slash > 0) {
+                bySession.computeIfAbsent(rest.substring(0, slash), id -> new ArrayList<>()).add(key);
+            }
+        }
+        List<String> orphaned = new ArrayList<>();
+        bySession.forEach((id, keys) -> {
+            if (sessions.findById(id) == null) orphaned.addAll(keys);
+        });
+        progress.keySet().removeIf(id -> sessions.findById(id) == null);
+        if (orphaned.isEmpty()) return 0;
+        return orphaned.size() - storage.delete(orphaned).size();
+    }
+
+    @Override
+    public void abort(String ownerId, String sessionId) {
+        cleanup(load(ownerId, sessionId));
+    }
+
+    private UploadSession load(String ownerId, String sessionId) {
+        UploadSession s = sessions.findById(sessionId);
+        if (s == null) throw new NotFoundException("upload session not found");
+        if (!Objects.equals(s.ownerId(), ownerId)) {
+            throw new SecurityException("not owner");
+        }
+        return s;
+    }
+
+    /** A private copy of the digest over every chunk committed to {@code s}. */
+    private MessageDigest digestAt(UploadSession s) {
+        Progress p = progress.get(s.id());
+        if (p != null && p.chunks() == s.chunks()) {
+            try {
+                return (MessageDigest) p.digest().clone();
+            } catch (CloneNotSupportedException e) {
+                // fall through and replay the chunks
+            }
+        }
+        MessageDigest md = sha256();
+        for (String key : s.chunkKeys()) {
+            try (InputStream in = new HashingInputStream(storage.get(key).stream(), md)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return md;
+    }
+
+    private void cleanup(UploadSession s) {
+        progress.remove(s.id());
+        sessions.delete(s.id());
+        for (String key : s.chunkKeys()) {
+            discard(key);
+        }
+    }
+
+    private void discard(String objectKey) {
+        try {
+            storage.delete(objectKey);
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("sha256 error", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.digitalarkcorp.filestorage.application;
+
+/** What happened to one id of a batch delete; mirrors the 404 and 403 of a single delete. */
+public record DeleteResult(String id, Outcome outcome) {
+
+    public enum Outcome { DELETED, NOT_FOUND, FORBIDDEN }
+}
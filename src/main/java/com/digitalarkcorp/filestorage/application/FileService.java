@@ -1,33 +1,78 @@
-package com.digitalarkcorp.filestorage.application;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-
-import java.io.InputStream;
-import java.util.List;
-
-public interface FileService {
-
-    FileMetadata upload(String ownerId,
-                        String filename,
-                        Visibility visibility,
-                        List<String> tags,
-                        String contentType,
-                        long contentLength,
-                        InputStream data);
-
-    List<FileMetadata> listByOwner(String ownerId, ListQuery query);
-
-    List<FileMetadata> listPublic(ListQuery query);
-
-    FileMetadata rename(String userId, String id, RenameRequest req);
-
-    boolean delete(String userId, String id);
-
-    StoragePort.Resource getForDownload(String linkId);
-
-    FileMetadata findByLinkId(String linkId);
-}
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+public interface FileService {
+
+    FileMetadata upload(String ownerId,
+                        String filename,
+                        Visibility visibility,
+                        List<String> tags,
+                        String contentType,
+                        long contentLength,
+                        InputStream data);
+
+    /**
+     * Creates a file from content already written to storage under {@code stagedKey}, whose
+     * SHA-256 and size the caller computed as it was written. The staged object is moved to
+     * its content-hash key, or dropped when that blob is already stored; nothing is re-read
+     * except the head, when the content type has to be sniffed.
+     */
+    FileMetadata commitStaged(String ownerId,
+                              String filename,
+                              Visibility visibility,
+                              List<String> tags,
+                              String contentType,
+                              String sha256,
+                              long size,
+                              String stagedKey);
+
+    /**
+     * Uploads many files of one owner: bodies are hashed and stored concurrently, and their
+     * records inserted together. Each file succeeds or fails on its own with the rules of
+     * {@link #upload}; returns one result per item, in request order.
+     */
+    List<UploadResult> uploadAll(String ownerId, List<UploadItem> items);
+
+    /**
+     * Creates a file from a blob the server already stores, without receiving any bytes.
+     * Only content the owner could already read (a public file or one of their own) is matched,
+     * so a known hash is not enough to obtain someone else's private file.
+     * Throws {@link com.digitalarkcorp.filestorage.api.errors.NotFoundException} when nothing
+     * matches the hash and size; the client then uploads the bytes.
+     */
+    FileMetadata uploadByHash(String ownerId,
+                              String filename,
+                              Visibility visibility,
+                              List<String> tags,
+                              String contentType,
+                              String sha256,
+                              long size);
+
+    List<FileMetadata> listByOwner(String ownerId, ListQuery query);
+
+    List<FileMetadata> listPublic(ListQuery query);
+
+    FileMetadata rename(String userId, String id, RenameRequest req);
+
+    boolean delete(String userId, String id);
+
+    /**
+     * Deletes the caller's files among {@code ids} with a constant number of round trips,
+     * whatever their count. Returns one result per distinct id, in request order.
+     */
+    List<DeleteResult> delete(String userId, Collection<String> ids);
+
+    StoragePort.Resource getForDownload(String linkId);
+
+    /** Resolves a link with a single metadata lookup; storage is not touched until the download is opened. */
+    FileDownload openDownload(String linkId);
+}
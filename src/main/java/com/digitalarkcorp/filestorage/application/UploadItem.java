@@ -0,0 +1,18 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.domain.Visibility;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * One file of a batch upload. The body is opened by the worker that stores it, and closed
+ * when it is done; {@code contentLength} is -1 when unknown.
+ */
+public record UploadItem(String filename,
+                         Visibility visibility,
+                         List<String> tags,
+                         String contentType,
+                         long contentLength,
+                         Supplier<InputStream> data) {}
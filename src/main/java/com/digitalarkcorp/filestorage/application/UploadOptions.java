@@ -0,0 +1,35 @@
+package com.digitalarkcorp.filestorage.application;
+
+/**
+ * How {@link DefaultFileService} stores uploads; built from the {@code storage.*} properties.
+ *
+ * @param prehashLimit     uploads of at most this many bytes are hashed in memory before anything is sent to storage
+ * @param prehashBudget    bytes all in-flight uploads together may hold for prehashing; an upload that does not
+ *                         fit in what is left is streamed through a provisional key instead
+ * @param compress         new blobs of {@link com.digitalarkcorp.filestorage.application.util.ContentEncodings#compressible
+ *                         compressible} types are stored gzip-encoded
+ * @param batchConcurrency files of one {@link FileService#uploadAll} hashed and stored at the same time
+ */
+public record UploadOptions(long prehashLimit, long prehashBudget, boolean compress, int batchConcurrency) {
+
+    public static final UploadOptions DEFAULTS =
+            new UploadOptions(8L * 1024 * 1024, 256L * 1024 * 1024, false, 8);
+
+    public UploadOptions {
+        prehashLimit = Math.min(prehashLimit, Integer.MAX_VALUE - 8);
+        prehashBudget = Math.max(0, Math.min(prehashBudget, Integer.MAX_VALUE));
+        batchConcurrency = Math.max(1, batchConcurrency);
+    }
+
+    public UploadOptions withPrehashLimit(long prehashLimit) {
+        return new UploadOptions(prehashLimit, prehashBudget, compress, batchConcurrency);
+    }
+
+    public UploadOptions withPrehashBudget(long prehashBudget) {
+        return new UploadOptions(prehashLimit, prehashBudget, compress, batchConcurrency);
+    }
+
+    public UploadOptions withCompress(boolean compress) {
+        return new UploadOptions(prehashLimit, prehashBudget, compress, batchConcurrency);
+    }
+}
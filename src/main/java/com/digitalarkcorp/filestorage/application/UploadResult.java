@@ -0,0 +1,27 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+
+/**
+ * What happened to one file of a batch upload, by its position in the request. Conflicts and
+ * invalid files carry the same message a single upload would fail with.
+ */
+public record UploadResult(int index, String filename, Outcome outcome, FileMetadata file, String error) {
+
+    public enum Outcome { CREATED, CONFLICT, INVALID, FAILED }
+
+    static UploadResult created(int index, FileMetadata file) {
+        return new UploadResult(index, file.filename(), Outcome.CREATED, file, null);
+    }
+
+    static UploadResult rejected(int index, String filename, Throwable e) {
+        if (e instanceof ConflictException) {
+            return new UploadResult(index, filename, Outcome.CONFLICT, null, e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            return new UploadResult(index, filename, Outcome.INVALID, null, e.getMessage());
+        }
+        return new UploadResult(index, filename, Outcome.FAILED, null, "unexpected error");
+    }
+}
@@ -0,0 +1,35 @@
+package com.digitalarkcorp.filestorage.application;
+
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Resumable uploads: open a session, send numbered chunks in order, check the committed
+ * offset after a dropped connection, then complete it into a regular file.
+ */
+public interface UploadSessionService {
+
+    /** {@code length} is the announced total size, or -1 when unknown. */
+    UploadSession create(String ownerId,
+                         String filename,
+                         Visibility visibility,
+                         List<String> tags,
+                         String contentType,
+                         long length);
+
+    UploadSession get(String ownerId, String sessionId);
+
+    /** Stores chunk {@code index}, which must be the next one the session expects. */
+    UploadSession putChunk(String ownerId, String sessionId, int index, long contentLength, InputStream data);
+
+    FileMetadata complete(String ownerId, String sessionId);
+
+    void abort(String ownerId, String sessionId);
+
+    /** Deletes chunk objects of sessions that expired or ended without cleanup; returns how many. */
+    int sweep();
+}
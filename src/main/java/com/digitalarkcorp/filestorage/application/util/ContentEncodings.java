@@ -0,0 +1,157 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Content codings a blob can be stored in. A blob keeps its content-hash identity whatever
+ * the coding; each coding has its own object key, so writers that chose differently never
+ * overwrite each other's bytes.
+ */
+public final class ContentEncodings {
+
+    public static final String GZIP = "gzip";
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final Set<String> COMPRESSIBLE = Set.of(
+            "application/json", "application/x-ndjson", "application/xml", "application/javascript",
+            "application/yaml", "application/x-yaml", "application/sql", "application/csv",
+            "application/x-sh", "application/rtf", "image/svg+xml");
+
+    private ContentEncodings() {
+    }
+
+    /** Text-like types worth compressing; media and archives are already compressed. */
+    public static boolean compressible(String contentType) {
+        if (contentType == null) return false;
+        String type = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.endsWith("+json")
+                || type.endsWith("+xml")
+                || COMPRESSIBLE.contains(type);
+    }
+
+    /** Encoded copies are only kept when they save at least an eighth of the original. */
+    public static boolean worthKeeping(long encodedSize, long size) {
+        return encodedSize <= size - size / 8;
+    }
+
+    public static String objectKey(String hash, String encoding) {
+        if (encoding == null) return hash;
+        if (GZIP.equals(encoding)) return hash + GZIP_SUFFIX;
+        throw new IllegalArgumentException("unknown content encoding: " + encoding);
+    }
+
+    /** Every key a blob may have been written under. */
+    public static List<String> objectKeys(String hash) {
+        return List.of(hash, hash + GZIP_SUFFIX);
+    }
+
+    public static byte[] gzip(byte[] body) {
+        // the same encoder as the streamed path, so both write identical bytes for the same content
+        try (GzipEncodingInputStream in = new GzipEncodingInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static InputStream decode(InputStream stored, String encoding) {
+        if (encoding == null) return stored;
+        if (!GZIP.equals(encoding)) {
+            throw new IllegalArgumentException("unknown content encoding: " + encoding);
+        }
+        try {
+            return new GZIPInputStream(stored, 8192);
+        } catch (IOException e) {
+            closeQuietly(stored);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The content hash {@code objectKey} was written for by {@link #objectKey}, whatever its coding. */
+    public static String hashOf(String objectKey) {
+        return objectKey.endsWith(GZIP_SUFFIX)
+                ? objectKey.substring(0, objectKey.length() - GZIP_SUFFIX.length())
+                : objectKey;
+    }
+
+    /** The coding of an object key written by {@link #objectKey}; null when stored verbatim. */
+    public static String encodingOf(String objectKey) {
+        return objectKey.endsWith(GZIP_SUFFIX) ? GZIP : null;
+    }
+
+    /**
+     * {@code length} decoded bytes from {@code offset}. Compressed offsets do not map to content
+     * offsets, so the stored object is read and inflated from its start: a range near the end
+     * costs about as much as the whole blob, and callers should bound how many they serve.
+     */
+    public static InputStream decode(InputStream stored, String encoding, long offset, long length) {
+        InputStream decoded = decode(stored, encoding);
+        try {
+            decoded.skipNBytes(offset);
+        } catch (IOException e) {
+            closeQuietly(decoded);
+            throw new UncheckedIOException(e);
+        }
+        return new Limited(decoded, length);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Limited extends FilterInputStream {
+
+        private long remaining;
+
+        Limited(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b != -1) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int r = in.read(b, off, (int) Math.min(len, remaining));
+            if (r > 0) remaining -= r;
+            return r;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = in.skip(Math.min(n, remaining));
+            remaining -= s;
+            return s;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
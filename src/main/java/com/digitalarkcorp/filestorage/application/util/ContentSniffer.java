@@ -0,0 +1,34 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import org.apache.tika.Tika;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Content-type detection on the head of an upload stream. The head is read under a
+ * mark and the stream reset, so the same stream can then be hashed and stored.
+ */
+public final class ContentSniffer {
+
+    /** Enough for Tika's magic-byte signatures. */
+    public static final int SNIFF_BYTES = 8 * 1024;
+
+    // Tika's facade is thread-safe; building one loads the whole MIME registry
+    private static final Tika TIKA = new Tika();
+
+    private ContentSniffer() {
+    }
+
+    public static String detect(BufferedInputStream in, String filename) {
+        try {
+            in.mark(SNIFF_BYTES);
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            in.reset();
+            return TIKA.detect(head, filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
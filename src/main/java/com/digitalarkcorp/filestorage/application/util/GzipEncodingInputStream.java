@@ -0,0 +1,113 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Gzip-encodes everything read from the source as it is read, so an upload can be stored
+ * compressed without buffering it. The header carries no name or time, so the same content
+ * always encodes to the same bytes.
+ */
+public class GzipEncodingInputStream extends FilterInputStream {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Deflater deflater;
+    private long count;
+
+    public GzipEncodingInputStream(InputStream source) {
+        this(source, new Deflater(Deflater.DEFAULT_COMPRESSION, true), new CRC32());
+    }
+
+    private GzipEncodingInputStream(InputStream source, Deflater deflater, CRC32 crc) {
+        super(gzip(source, deflater, crc));
+        this.deflater = deflater;
+    }
+
+    private static InputStream gzip(InputStream source, Deflater deflater, CRC32 crc) {
+        // the trailer is only built once the body is drained and the checksum complete
+        Iterator<Supplier<InputStream>> parts = List.<Supplier<InputStream>>of(
+                () -> new ByteArrayInputStream(HEADER),
+                () -> new DeflaterInputStream(new CheckedInputStream(source, crc), deflater),
+                () -> new ByteArrayInputStream(trailer(crc, deflater))
+        ).iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return parts.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return parts.next().get();
+            }
+        });
+    }
+
+    private static byte[] trailer(CRC32 crc, Deflater deflater) {
+        ByteBuffer b = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt((int) crc.getValue());
+        b.putInt((int) deflater.getBytesRead());
+        deflater.end();
+        return b.array();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) count++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int r = in.read(b, off, len);
+        if (r > 0) count += r;
+        return r;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes would still count as encoded
+        byte[] buf = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (r == -1) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /** Encoded bytes produced so far. */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes the SHA-256 and byte count of everything read through it, so an upload
+ * can be hashed while it is streamed to storage.
+ */
+public class HashingInputStream extends FilterInputStream {
+
+    private final MessageDigest md;
+    private long count;
+    private long digestNanos;
+
+    public HashingInputStream(InputStream in) {
+        super(in);
+        try {
+            this.md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("sha256 error", e);
+        }
+    }
+
+    /**
+     * Continues hashing into {@code md}, which may already hold earlier bytes of the same
+     * content; {@link #count()} still only covers what is read through this stream.
+     */
+    public HashingInputStream(InputStream in, MessageDigest md) {
+        super(in);
+        this.md = md;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            long t = System.nanoTime();
+            md.update((byte) b);
+            digestNanos += System.nanoTime() - t;
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int r = in.read(b, off, len);
+        if (r > 0) {
+            long t = System.nanoTime();
+            md.update(b, off, r);
+            digestNanos += System.nanoTime() - t;
+            count += r;
+        }
+        return r;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes would be missing from the digest
+        byte[] buf = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (r == -1) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** Time spent inside the digest itself, as opposed to waiting on the source. */
+    public long digestNanos() {
+        return digestNanos;
+    }
+
+    /** Hex digest of the bytes read so far; call once the stream is exhausted. */
+    public String hash() {
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
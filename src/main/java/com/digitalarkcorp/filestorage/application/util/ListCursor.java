@@ -0,0 +1,57 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position for list endpoints: the sort key and id of the last item
+ * of a page. The next page starts strictly after it, so every page costs the same.
+ * The cursor is tied to the sort it was issued for.
+ */
+public record ListCursor(ListQuery.SortBy sortBy, ListQuery.SortDir sortDir, Object value, String id) {
+
+    private static final String SEP = "|";
+
+    /** Cursor for the page after {@code last}, or null when the sort has no stable key (TAG). */
+    public static String next(ListQuery query, FileMetadata last) {
+        if (query.sortBy() == ListQuery.SortBy.TAG || last == null || last.id() == null) return null;
+        Object value = switch (query.sortBy()) {
+            case FILENAME -> last.filename();
+            case UPDATED_AT -> last.updatedAt() != null ? last.updatedAt().toEpochMilli() : null;
+            case SIZE -> last.size();
+            case CONTENT_TYPE -> last.contentType();
+            default -> last.createdAt() != null ? last.createdAt().toEpochMilli() : null;
+        };
+        // value goes last: it is the only part that may contain the separator
+        String raw = query.sortBy() + SEP + query.sortDir() + SEP + last.id() + SEP
+                + (value == null ? "n" : "v" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ListCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) throw new IllegalArgumentException("invalid cursor");
+            ListQuery.SortBy sortBy = ListQuery.SortBy.valueOf(parts[0]);
+            if (sortBy == ListQuery.SortBy.TAG) throw new IllegalArgumentException("invalid cursor");
+            ListQuery.SortDir sortDir = ListQuery.SortDir.valueOf(parts[1]);
+            Object value = parts[3].startsWith("n") ? null : typed(sortBy, parts[3].substring(1));
+            return new ListCursor(sortBy, sortDir, value, parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+    }
+
+    private static Object typed(ListQuery.SortBy sortBy, String v) {
+        return switch (sortBy) {
+            case CREATED_AT, UPDATED_AT -> Instant.ofEpochMilli(Long.parseLong(v));
+            case SIZE -> Long.parseLong(v);
+            default -> v;
+        };
+    }
+}
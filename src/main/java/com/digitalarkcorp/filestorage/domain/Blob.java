@@ -0,0 +1,21 @@
+package com.digitalarkcorp.filestorage.domain;
+
+import java.time.Instant;
+
+/**
+ * A stored object, shared by every file with the same content. {@code refs} counts those files;
+ * {@code stored} stays false until the first uploader has written the object under {@code hash}.
+ * {@code encoding} and {@code storedSize} are set by that uploader, {@code encoding} being
+ * {@code null} for content stored verbatim.
+ * A blob without references is collected once {@code updatedAt} is older than the grace period.
+ */
+public record Blob(
+        String hash,
+        long size,
+        long refs,
+        boolean stored,
+        String encoding,
+        long storedSize,
+        Instant createdAt,
+        Instant updatedAt
+) {}
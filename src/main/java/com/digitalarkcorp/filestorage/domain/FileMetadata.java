@@ -1,21 +1,36 @@
-package com.digitalarkcorp.filestorage.domain;
-
-import java.time.Instant;
-import java.util.List;
-
-public record FileMetadata(
-        String id,
-        String ownerId,
-        String filename,
-        Visibility visibility,
-        List<String> tags,
-        long size,
-        String contentType,
-        String contentHash,
-        String linkId,
-        FileStatus status,
-        Instant createdAt,
-        Instant updatedAt
-) {
-    public enum FileStatus { READY }
-}
+package com.digitalarkcorp.filestorage.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * {@code size} and {@code contentHash} describe the content as uploaded. {@code contentEncoding}
+ * is the coding its blob is stored in ({@code null} when stored verbatim) and {@code storedSize}
+ * the length of the stored object.
+ */
+public record FileMetadata(
+        String id,
+        String ownerId,
+        String filename,
+        Visibility visibility,
+        List<String> tags,
+        long size,
+        String contentType,
+        String contentHash,
+        String linkId,
+        FileStatus status,
+        Instant createdAt,
+        Instant updatedAt,
+        String contentEncoding,
+        long storedSize
+) {
+    public enum FileStatus { READY }
+
+    /** Content stored verbatim. */
+    public FileMetadata(String id, String ownerId, String filename, Visibility visibility, List<String> tags,
+                        long size, String contentType, String contentHash, String linkId, FileStatus status,
+                        Instant createdAt, Instant updatedAt) {
+        this(id, ownerId, filename, visibility, tags, size, contentType, contentHash, linkId, status,
+                createdAt, updatedAt, null, size);
+    }
+}
@@ -1,6 +1,6 @@
-package com.digitalarkcorp.filestorage.domain;
-
-public enum FileStatus {
-    PENDING,
-    READY
-}
+package com.digitalarkcorp.filestorage.domain;
+
+public enum FileStatus {
+    PENDING,
+    READY
+}
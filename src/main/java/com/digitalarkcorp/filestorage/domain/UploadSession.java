@@ -0,0 +1,27 @@
+package com.digitalarkcorp.filestorage.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A resumable upload in progress. Chunks are stored as separate objects, in order, under
+ * {@code chunkKeys}; {@code offset} is the number of bytes committed so far and
+ * {@code length} the declared total, or -1 when the client did not announce one.
+ */
+public record UploadSession(
+        String id,
+        String ownerId,
+        String filename,
+        Visibility visibility,
+        List<String> tags,
+        String contentType,
+        long length,
+        long offset,
+        List<String> chunkKeys,
+        Instant createdAt,
+        Instant updatedAt
+) {
+    public int chunks() {
+        return chunkKeys == null ? 0 : chunkKeys.size();
+    }
+}
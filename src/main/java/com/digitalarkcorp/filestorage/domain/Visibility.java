@@ -1,6 +1,6 @@
-package com.digitalarkcorp.filestorage.domain;
-
-public enum Visibility {
-    PUBLIC,
-    PRIVATE
-}
+package com.digitalarkcorp.filestorage.domain;
+
+public enum Visibility {
+    PUBLIC,
+    PRIVATE
+}
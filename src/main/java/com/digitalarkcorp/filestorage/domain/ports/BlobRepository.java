@@ -0,0 +1,60 @@
+package com.digitalarkcorp.filestorage.domain.ports;
+
+import com.digitalarkcorp.filestorage.domain.Blob;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface BlobRepository {
+
+    /**
+     * Adds a reference, creating the record on first use. Waits briefly while the blob is being
+     * collected, so a reference is never taken on an object that is about to be deleted, and
+     * throws {@code UnavailableException} if collection has not finished by then.
+     */
+    Blob acquire(String hash, long size, Instant now);
+
+    /**
+     * Records that the object was written with {@code encoding}. When another uploader marked it
+     * first, its encoding is kept; the returned record says which representation is the blob.
+     */
+    Blob markStored(String hash, String encoding, long storedSize);
+
+    /**
+     * Drops a reference and returns how many are left, or -1 when the blob has no record
+     * because it was stored before references were counted.
+     */
+    long release(String hash, Instant now);
+
+    /**
+     * Drops {@code counts.get(hash)} references from each blob in one bulk write. Returns the
+     * hashes without a record, whose files were stored before references were counted.
+     */
+    Set<String> release(Map<String, Long> counts, Instant now);
+
+    /**
+     * Claims one blob without references whose last change is before {@code releasedBefore};
+     * claims older than that are taken over. Returns null when there is none.
+     */
+    Blob claimCollectable(Instant releasedBefore, Instant now);
+
+    /** Gives a claimed blob back with {@code refs} references. */
+    void restore(String hash, long refs, boolean stored, Instant now);
+
+    /** Removes a claimed record once its object is gone. */
+    void delete(String hash);
+
+    /**
+     * Up to {@code limit} blobs with references, not being collected and unchanged since
+     * {@code changedBefore}, in hash order starting after {@code afterHash} (null for the first).
+     */
+    List<Blob> findSettled(String afterHash, Instant changedBefore, int limit);
+
+    /**
+     * Sets the reference count of {@code seen} to {@code refs}, unless the blob changed since it
+     * was read. Returns whether it was updated.
+     */
+    boolean correct(Blob seen, long refs, Instant now);
+}
@@ -1,23 +1,52 @@
-package com.digitalarkcorp.filestorage.domain.ports;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-
-import java.time.Instant;
-import java.util.List;
-
-public interface MetadataRepository {
-    FileMetadata save(FileMetadata m);
-    FileMetadata findById(String id);
-    FileMetadata findByLinkId(String linkId);
-    void rename(String id, String newFilename, Instant now);
-    boolean deleteByIdAndOwner(String id, String ownerId);
-    List<FileMetadata> listByOwner(String ownerId, ListQuery query);
-    List<FileMetadata> listPublic(ListQuery query);
-
-    boolean existsByOwnerAndFilename(String ownerId, String filename);
-    boolean existsByOwnerAndContentHash(String ownerId, String contentHash);
-
-    // <-- ADICIONE ESTA LINHA
-    long countByContentHash(String contentHash);
-}
+package com.digitalarkcorp.filestorage.domain.ports;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface MetadataRepository {
+
+    /** One record of {@link #saveAll}: the stored file, or why it was rejected. */
+    record Saved(FileMetadata file, RuntimeException error) {}
+
+    /**
+     * Inserts the record. Throws {@link com.digitalarkcorp.filestorage.api.errors.ConflictException}
+     * when the owner already has a file with the same name or the same content.
+     */
+    FileMetadata save(FileMetadata m);
+    /**
+     * Inserts many records in one request. Each is accepted or rejected on its own, with the
+     * {@link #save} conflicts; returns one result per record, in order.
+     */
+    List<Saved> saveAll(List<FileMetadata> files);
+    FileMetadata findById(String id);
+    FileMetadata findByLinkId(String linkId);
+    /** Throws {@link com.digitalarkcorp.filestorage.api.errors.ConflictException} when the owner already uses the name. */
+    void rename(String id, String newFilename, Instant now);
+    boolean deleteByIdAndOwner(String id, String ownerId);
+    /** The files among {@code ids} that exist, whoever owns them, in one query. */
+    List<FileMetadata> findAllById(Collection<String> ids);
+    /** Deletes the files among {@code ids} that belong to {@code ownerId} in one request; returns how many went. */
+    long deleteAllByIdsAndOwner(Collection<String> ids, String ownerId);
+    List<FileMetadata> listByOwner(String ownerId, ListQuery query);
+    List<FileMetadata> listPublic(ListQuery query);
+
+    boolean existsByOwnerAndFilename(String ownerId, String filename);
+    boolean existsByOwnerAndContentHash(String ownerId, String contentHash);
+
+    // <-- ADICIONE ESTA LINHA
+    long countByContentHash(String contentHash);
+
+    /** Files per content hash in one aggregation; hashes nobody references are absent. */
+    Map<String, Long> countByContentHashes(Collection<String> contentHashes);
+
+    /** Whether any owner references the blob; stops at the first match instead of counting. */
+    boolean existsByContentHash(String contentHash);
+
+    /** Any file with this content that is public or owned by {@code ownerId}, or null. */
+    FileMetadata findReadableByContentHash(String ownerId, String contentHash);
+}
@@ -0,0 +1,14 @@
+package com.digitalarkcorp.filestorage.domain.ports;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking read side of {@link StoragePort}, for the reactive edge stack. Buffers are
+ * produced on demand, so a slow client throttles the storage read instead of filling memory.
+ */
+public interface ReactiveStoragePort {
+
+    /** Streams {@code length} bytes starting at {@code offset}. */
+    Flux<DataBuffer> get(String objectKey, long offset, long length);
+}
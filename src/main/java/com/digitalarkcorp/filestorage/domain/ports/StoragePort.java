@@ -1,14 +1,75 @@
-package com.digitalarkcorp.filestorage.domain.ports;
-
-import java.io.InputStream;
-
-public interface StoragePort {
-
-    record Resource(InputStream stream, long contentLength, String contentType) {}
-
-    void put(String objectKey, InputStream data, long contentLength, String contentType);
-
-    Resource get(String objectKey);
-
-    void delete(String objectKey);
-}
+package com.digitalarkcorp.filestorage.domain.ports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+public interface StoragePort {
+
+    record Resource(InputStream stream, long contentLength, String contentType) {}
+
+    void put(String objectKey, InputStream data, long contentLength, String contentType);
+
+    Resource get(String objectKey);
+
+    /** Reads {@code length} bytes starting at {@code offset}; the returned length is the range length. */
+    Resource get(String objectKey, long offset, long length);
+
+    /**
+     * Renames an object inside the backend without streaming it through the application.
+     * An existing object under {@code targetKey} is replaced.
+     */
+    void move(String sourceKey, String targetKey);
+
+    /**
+     * Writes the concatenation of {@code sourceKeys}, in order, under {@code targetKey}; the
+     * sources are kept. Backends override this to join the objects where they are stored;
+     * the default streams them through the application.
+     */
+    default void compose(List<String> sourceKeys, String targetKey) {
+        Iterator<String> it = sourceKeys.iterator();
+        InputStream joined = new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return it.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return get(it.next()).stream();
+            }
+        });
+        try (joined) {
+            put(targetKey, joined, -1, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Keys of the objects under {@code prefix}, which ends with {@code /}. */
+    List<String> list(String prefix);
+
+    void delete(String objectKey);
+
+    /**
+     * Deletes many objects, in as few backend requests as it allows. Missing objects are not
+     * failures; returns the keys that could not be deleted.
+     */
+    default List<String> delete(Collection<String> objectKeys) {
+        List<String> failed = new ArrayList<>();
+        for (String key : objectKeys) {
+            try {
+                delete(key);
+            } catch (RuntimeException e) {
+                failed.add(key);
+            }
+        }
+        return failed;
+    }
+}
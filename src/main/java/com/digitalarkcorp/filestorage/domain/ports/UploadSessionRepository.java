@@ -0,0 +1,18 @@
+package com.digitalarkcorp.filestorage.domain.ports;
+
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+
+import java.time.Instant;
+
+public interface UploadSessionRepository {
+    UploadSession save(UploadSession s);
+    UploadSession findById(String id);
+
+    /**
+     * Appends a chunk only if the session still holds exactly {@code expectedChunks} chunks,
+     * so concurrent or replayed writes of the same chunk number commit at most once.
+     */
+    boolean appendChunk(String id, int expectedChunks, String chunkKey, long chunkLength, Instant now);
+
+    void delete(String id);
+}
@@ -0,0 +1,35 @@
+package com.digitalarkcorp.filestorage.infrastructure.cache;
+
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Edge reads through the {@link DiskCachingStoragePort} chain the servlet nodes use, so both
+ * fill and hit the same cache. Opening a miss blocks a bounded-elastic thread on the MinIO
+ * client, where the uncached adapter waits on the async one; the body is read one buffer
+ * per downstream request either way.
+ */
+public class CachedReactiveStoragePort implements ReactiveStoragePort {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StoragePort storage;
+    private final DataBufferFactory bufferFactory;
+
+    public CachedReactiveStoragePort(StoragePort storage, DataBufferFactory bufferFactory) {
+        this.storage = storage;
+        this.bufferFactory = bufferFactory;
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String objectKey, long offset, long length) {
+        return DataBufferUtils
+                .readInputStream(() -> storage.get(objectKey, offset, length).stream(), bufferFactory, BUFFER_SIZE)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,169 @@
+package com.digitalarkcorp.filestorage.infrastructure.cache;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Keeps recently resolved files in memory for the download path ({@code findByLinkId}, {@code findById}).
+ * Misses are not cached, and rename/delete evict the file from both maps, so a deleted link
+ * stops resolving on this instance immediately; other instances catch up within the TTL.
+ */
+public class CachingMetadataRepository implements MetadataRepository {
+
+    private final MetadataRepository delegate;
+    private final Cache<String, FileMetadata> byId;
+    private final Cache<String, FileMetadata> byLinkId;
+    /** id to linkId of every entry in {@code byLinkId}, so a write evicts its link without a scan. */
+    private final Map<String, String> linkIds = new ConcurrentHashMap<>();
+    /** Bumped by every rename and delete, before their entries are evicted. */
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachingMetadataRepository(MetadataRepository delegate, long maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.byId = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.byLinkId = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats()
+                // on the calling thread, so the index never outlives the entry it points to
+                .executor(Runnable::run)
+                .<String, FileMetadata>removalListener((linkId, m, cause) -> {
+                    if (m != null && cause != RemovalCause.REPLACED) linkIds.remove(m.id(), linkId);
+                })
+                .build();
+    }
+
+    /** Publishes size, hit/miss and eviction meters for both maps. */
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "metadata.byId");
+        CaffeineCacheMetrics.monitor(registry, byLinkId, "metadata.byLinkId");
+    }
+
+    @Override
+    public FileMetadata save(FileMetadata m) {
+        return delegate.save(m);
+    }
+
+    @Override
+    public List<Saved> saveAll(List<FileMetadata> files) {
+        return delegate.saveAll(files);
+    }
+
+    @Override
+    public FileMetadata findById(String id) {
+        return lookup(byId, id, delegate::findById);
+    }
+
+    @Override
+    public FileMetadata findByLinkId(String linkId) {
+        return lookup(byLinkId, linkId, key -> {
+            FileMetadata m = delegate.findByLinkId(key);
+            if (m != null) linkIds.put(m.id(), key);
+            return m;
+        });
+    }
+
+    /**
+     * Loads through {@code Cache.get(key, loader)}, so concurrent misses on one key share a
+     * single load and null is not cached. A load that read the record before a concurrent
+     * write is dropped once it lands, instead of serving the stale record for the TTL.
+     */
+    private FileMetadata lookup(Cache<String, FileMetadata> cache, String key,
+                                Function<String, FileMetadata> loader) {
+        long seen = writes.get();
+        FileMetadata m = cache.get(key, loader);
+        if (m != null && writes.get() != seen) cache.invalidate(key);
+        return m;
+    }
+
+    @Override
+    public void rename(String id, String newFilename, Instant now) {
+        try {
+            delegate.rename(id, newFilename, now);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public boolean deleteByIdAndOwner(String id, String ownerId) {
+        try {
+            return delegate.deleteByIdAndOwner(id, ownerId);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public List<FileMetadata> findAllById(Collection<String> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public long deleteAllByIdsAndOwner(Collection<String> ids, String ownerId) {
+        try {
+            return delegate.deleteAllByIdsAndOwner(ids, ownerId);
+        } finally {
+            ids.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
+        return delegate.listByOwner(ownerId, query);
+    }
+
+    @Override
+    public List<FileMetadata> listPublic(ListQuery query) {
+        return delegate.listPublic(query);
+    }
+
+    @Override
+    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
+        return delegate.existsByOwnerAndFilename(ownerId, filename);
+    }
+
+    @Override
+    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
+        return delegate.existsByOwnerAndContentHash(ownerId, contentHash);
+    }
+
+    @Override
+    public long countByContentHash(String contentHash) {
+        return delegate.countByContentHash(contentHash);
+    }
+
+    @Override
+    public Map<String, Long> countByContentHashes(Collection<String> contentHashes) {
+        return delegate.countByContentHashes(contentHashes);
+    }
+
+    @Override
+    public boolean existsByContentHash(String contentHash) {
+        return delegate.existsByContentHash(contentHash);
+    }
+
+    @Override
+    public FileMetadata findReadableByContentHash(String ownerId, String contentHash) {
+        return delegate.findReadableByContentHash(ownerId, contentHash);
+    }
+
+    private void invalidate(String id) {
+        writes.incrementAndGet();
+        byId.invalidate(id);
+        String linkId = linkIds.remove(id);
+        if (linkId != null) byLinkId.invalidate(linkId);
+    }
+}
@@ -0,0 +1,416 @@
+package com.digitalarkcorp.filestorage.infrastructure.cache;
+
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.application.util.HashingInputStream;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalLayout;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalLayoutMigration;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalStorageAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache of remote objects on local disk. Only content-hash keys and their encoded
+ * copies are cached: they are immutable, so a copy whose SHA-256 matches its key (after decoding,
+ * for an encoded one) can be served without revalidation.
+ * A miss is served from the backend as it arrives and copied to disk on the way; a concurrent
+ * miss on a key already being copied goes to the backend too rather than waiting. The least
+ * recently read objects are evicted past {@code maxBytes}. Objects over {@code maxObjectBytes}
+ * are never cached. Anything that goes wrong locally only costs the copy, never the read.
+ */
+public class DiskCachingStoragePort implements StoragePort {
+
+    static final String FILL_DIR = ".fill";
+
+    /** How many keys found over {@code maxObjectBytes} are remembered. */
+    private static final int TOO_LARGE_ENTRIES = 10_000;
+
+    private final StoragePort delegate;
+    private final LocalStorageAdapter disk;
+    private final Path fillDir;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final Executor fills;
+    private final MeterRegistry meters;
+
+    /** Keys being copied to disk, by a read or a prefetch. */
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+    /** Keys too large to cache, so range misses do not fetch them again to find out. */
+    private final Set<String> tooLarge = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > TOO_LARGE_ENTRIES;
+                }
+            }));
+    /** Cached keys and sizes in access order; guarded by itself. */
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+
+    public DiskCachingStoragePort(StoragePort delegate, Path dir, long maxBytes, long maxObjectBytes,
+                                  Executor fills, MeterRegistry meters) {
+        this.delegate = delegate;
+        // a lost copy is only refetched, so nothing is fsynced; the layout is always sharded
+        LocalLayout layout = new LocalLayout(dir);
+        LocalLayoutMigration.migrate(layout);
+        this.disk = new LocalStorageAdapter(layout, LocalStorageAdapter.Durability.NONE);
+        this.fillDir = dir.resolve(FILL_DIR);
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = maxObjectBytes;
+        this.fills = fills;
+        this.meters = meters;
+        clearFills();
+        reload(dir);
+        meters.gauge("storage.cache.bytes", this, c -> c.cachedBytes());
+    }
+
+    @Override
+    public Resource get(String objectKey) {
+        if (!LocalStorageAdapter.isContentKey(objectKey)) return delegate.get(objectKey);
+
+        Resource hit = cached(objectKey, 0, -1);
+        if (hit != null) {
+            countRequest("hit");
+            return hit;
+        }
+
+        countRequest("miss");
+        Resource remote = delegate.get(objectKey);
+        if (remote.contentLength() > maxObjectBytes) {
+            tooLarge.add(objectKey);
+            return remote;
+        }
+        if (!filling.add(objectKey)) return remote;
+        return new Resource(new FillingInputStream(objectKey, remote.stream()), remote.contentLength(),
+                remote.contentType());
+    }
+
+    /** A range miss is served from the backend while the whole object is fetched in the background. */
+    @Override
+    public Resource get(String objectKey, long offset, long length) {
+        if (!LocalStorageAdapter.isContentKey(objectKey)) return delegate.get(objectKey, offset, length);
+
+        Resource hit = cached(objectKey, offset, length);
+        if (hit != null) {
+            countRequest("hit");
+            return hit;
+        }
+
+        countRequest("miss");
+        prefetch(objectKey);
+        return delegate.get(objectKey, offset, length);
+    }
+
+    @Override
+    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+        delegate.put(objectKey, data, contentLength, contentType);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        delegate.move(sourceKey, targetKey);
+    }
+
+    @Override
+    public void compose(List<String> sourceKeys, String targetKey) {
+        delegate.compose(sourceKeys, targetKey);
+    }
+
+    @Override
+    public List<String> list(String prefix) {
+        return delegate.list(prefix);
+    }
+
+    @Override
+    public void delete(String objectKey) {
+        delegate.delete(objectKey);
+        if (LocalStorageAdapter.isContentKey(objectKey)) {
+            forget(objectKey);
+        }
+    }
+
+    @Override
+    public List<String> delete(Collection<String> objectKeys) {
+        List<String> failed = delegate.delete(objectKeys);
+        for (String key : objectKeys) {
+            if (LocalStorageAdapter.isContentKey(key)) {
+                forget(key);
+            }
+        }
+        return failed;
+    }
+
+    long cachedBytes() {
+        synchronized (lru) {
+            return usedBytes;
+        }
+    }
+
+    private Resource cached(String key, long offset, long length) {
+        synchronized (lru) {
+            if (lru.get(key) == null) return null;
+        }
+        try {
+            return length < 0 ? disk.get(key) : disk.get(key, offset, length);
+        } catch (RuntimeException e) {
+            // evicted or removed underneath us, or the disk failed: read from the backend
+            forget(key);
+            return null;
+        }
+    }
+
+    private void prefetch(String key) {
+        if (tooLarge.contains(key) || !filling.add(key)) return;
+        try {
+            fills.execute(() -> {
+                try {
+                    Resource remote = delegate.get(key);
+                    if (remote.contentLength() > maxObjectBytes) {
+                        tooLarge.add(key);
+                        remote.stream().close();
+                        return;
+                    }
+                    try (InputStream in = new FillingInputStream(key, remote.stream())) {
+                        in.transferTo(OutputStream.nullOutputStream());
+                    }
+                } catch (IOException | RuntimeException ignored) {
+                    // the next miss tries again
+                } finally {
+                    filling.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            filling.remove(key);
+        }
+    }
+
+    /**
+     * Passes a remote object through while copying it to a file under {@link #FILL_DIR}. On close,
+     * a copy that was read to the end and matches its key is moved into the cache; anything else,
+     * including a local write error, drops the copy and leaves the read itself alone.
+     */
+    private final class FillingInputStream extends FilterInputStream {
+
+        private final String key;
+        private final HashingInputStream hashing;
+        private final Path file;
+        private final byte[] one = new byte[1];
+        private OutputStream out;
+        private boolean ended;
+        private boolean closed;
+
+        FillingInputStream(String key, InputStream remote) {
+            this(key, new HashingInputStream(remote));
+        }
+
+        private FillingInputStream(String key, HashingInputStream hashing) {
+            super(hashing);
+            this.key = key;
+            this.hashing = hashing;
+            this.file = fillDir.resolve(UUID.randomUUID() + ".tmp");
+            try {
+                this.out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                this.out = null;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                ended = true;
+            } else if (out != null) {
+                one[0] = (byte) b;
+                copy(one, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                ended = true;
+            } else if (n > 0 && out != null) {
+                copy(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            abandon();
+            return super.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                finish();
+            }
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            try {
+                out.write(b, off, len);
+                if (hashing.count() > maxObjectBytes) {
+                    tooLarge.add(key);
+                    abandon();
+                }
+            } catch (IOException e) {
+                abandon();
+            }
+        }
+
+        /**
+         * An encoded copy hashes to nothing known as stored, so it is decoded from disk once to
+         * check the content against the hash in its key.
+         */
+        private boolean verified() throws IOException {
+            String encoding = ContentEncodings.encodingOf(key);
+            if (encoding == null) return key.equals(hashing.hash());
+            try (HashingInputStream decoded = new HashingInputStream(
+                    ContentEncodings.decode(Files.newInputStream(file), encoding))) {
+                decoded.transferTo(OutputStream.nullOutputStream());
+                return ContentEncodings.hashOf(key).equals(decoded.hash());
+            }
+        }
+
+        private void abandon() {
+            if (out == null) return;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+        }
+
+        private void finish() {
+            try {
+                if (out == null || !ended) return;
+                out.close();
+                out = null;
+                if (!verified()) {
+                    countRequest("corrupt");
+                    return;
+                }
+                disk.move(FILL_DIR + "/" + file.getFileName(), key);
+                admit(key, hashing.count());
+            } catch (IOException | RuntimeException ignored) {
+                // not cached this time
+            } finally {
+                abandon();
+                deleteQuietly(file);
+                filling.remove(key);
+            }
+        }
+    }
+
+    private void admit(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (lru) {
+            Long previous = lru.put(key, size);
+            usedBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> it = lru.entrySet().iterator();
+            while (usedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                usedBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        // file deletes stay outside the lock
+        for (String e : evicted) {
+            disk.delete(e);
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (lru) {
+            Long size = lru.remove(key);
+            if (size != null) usedBytes -= size;
+        }
+        disk.delete(key);
+    }
+
+    /** Rebuilds the index from a previous run, oldest files first so they are evicted first. */
+    private void reload(Path dir) {
+        List<CachedFile> found;
+        try (Stream<Path> files = Files.walk(dir)) {
+            found = files
+                    .filter(p -> LocalStorageAdapter.isContentKey(p.getFileName().toString()))
+                    .map(DiskCachingStoragePort::describe)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(f -> f.attrs().lastModifiedTime()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (CachedFile f : found) {
+            admit(f.path().getFileName().toString(), f.attrs().size());
+        }
+    }
+
+    private static CachedFile describe(Path p) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+            return attrs.isRegularFile() ? new CachedFile(p, attrs) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private record CachedFile(Path path, BasicFileAttributes attrs) {}
+
+    /** Copies left by reads that were cut off when the process stopped. */
+    private void clearFills() {
+        try {
+            Files.createDirectories(fillDir);
+            try (Stream<Path> files = Files.list(fillDir)) {
+                files.forEach(DiskCachingStoragePort::deleteQuietly);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void countRequest(String result) {
+        meters.counter("storage.cache.requests", "result", result).increment();
+    }
+}
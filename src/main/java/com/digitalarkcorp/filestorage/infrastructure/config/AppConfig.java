@@ -1,24 +1,52 @@
-package com.digitalarkcorp.filestorage.infrastructure.config;
-
-import com.digitalarkcorp.filestorage.application.DefaultFileService;
-import com.digitalarkcorp.filestorage.application.FileService;
-import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-import java.time.Clock;
-
-@Configuration
-public class AppConfig {
-
-    @Bean
-    Clock clock() {
-        return Clock.systemUTC();
-    }
-
-    @Bean
-    FileService fileService(MetadataRepository repository, StoragePort storage, Clock clock) {
-        return new DefaultFileService(repository, storage, clock);
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import com.digitalarkcorp.filestorage.application.BlobCollector;
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.DefaultUploadSessionService;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.application.UploadSessionService;
+import com.digitalarkcorp.filestorage.domain.ports.BlobRepository;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.domain.ports.UploadSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+
+@Configuration
+@EnableScheduling
+public class AppConfig {
+
+    @Bean
+    Clock clock() {
+        return Clock.systemUTC();
+    }
+
+    @Bean
+    FileService fileService(MetadataRepository repository, BlobRepository blobs, StoragePort storage, Clock clock,
+                            ObjectProvider<MeterRegistry> registry, StorageProperties props) {
+        UploadOptions options = new UploadOptions(props.getPrehashLimit().toBytes(),
+                props.getPrehashBudget().toBytes(), props.isCompressAtRest(), props.getBatchUploadConcurrency());
+        return new DefaultFileService(repository, blobs, storage, clock,
+                registry.getIfAvailable(CompositeMeterRegistry::new), options);
+    }
+
+    @Bean
+    BlobCollector blobCollector(BlobRepository blobs, MetadataRepository repository, StoragePort storage, Clock clock,
+                                ObjectProvider<MeterRegistry> registry, BlobProperties props) {
+        return new BlobCollector(blobs, repository, storage, clock, props.gracePeriod(),
+                registry.getIfAvailable(CompositeMeterRegistry::new));
+    }
+
+    @Bean
+    UploadSessionService uploadSessionService(UploadSessionRepository sessions, MetadataRepository repository,
+                                              StoragePort storage, FileService files, Clock clock) {
+        return new DefaultUploadSessionService(sessions, repository, storage, files, clock);
+    }
+}
@@ -0,0 +1,28 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import com.digitalarkcorp.filestorage.application.BlobCollector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlobCollectionJob {
+
+    private final BlobCollector collector;
+    private final BlobProperties props;
+
+    @Scheduled(fixedDelayString = "${app.blobs.gc-interval}", initialDelayString = "${app.blobs.gc-interval}")
+    public void collect() {
+        int deleted = collector.collect(props.gcBatch());
+        if (deleted > 0) {
+            log.info("Collected {} unreferenced blobs", deleted);
+        }
+        int corrected = collector.reconcile(props.gcBatch());
+        if (corrected > 0) {
+            log.info("Corrected the reference counts of {} blobs", corrected);
+        }
+    }
+}
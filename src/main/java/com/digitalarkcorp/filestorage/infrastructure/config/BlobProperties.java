@@ -0,0 +1,17 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Blob collection: objects without references are deleted once they have been unreferenced
+ * for {@code gracePeriod}, at most {@code gcBatch} per run.
+ */
+@ConfigurationProperties(prefix = "app.blobs")
+public record BlobProperties(
+        Duration gracePeriod,
+        Duration gcInterval,
+        int gcBatch,
+        boolean backfill
+) {}
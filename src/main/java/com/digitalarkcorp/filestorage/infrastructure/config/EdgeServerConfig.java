@@ -0,0 +1,34 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.ReactorResourceFactory;
+
+/**
+ * The edge profile serves on Netty. Tomcat stays on the classpath for the servlet nodes, and
+ * Boot's reactive server auto-configuration prefers it over Netty when both are present; a
+ * factory declared here makes both embedded-server candidates back off.
+ */
+@Profile("edge")
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EdgeServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(
+            ObjectProvider<ReactorResourceFactory> resourceFactory,
+            ObjectProvider<NettyRouteProvider> routes,
+            ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        resourceFactory.ifAvailable(factory::setResourceFactory);
+        routes.orderedStream().forEach(factory::addRouteProviders);
+        serverCustomizers.orderedStream().forEach(factory::addServerCustomizers);
+        return factory;
+    }
+}
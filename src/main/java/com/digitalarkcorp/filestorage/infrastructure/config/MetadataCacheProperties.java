@@ -0,0 +1,12 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.metadata-cache")
+public record MetadataCacheProperties(
+        boolean enabled,
+        long maxSize,
+        Duration ttl
+) {}
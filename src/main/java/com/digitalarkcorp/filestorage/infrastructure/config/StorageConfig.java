@@ -1,31 +1,158 @@
-package com.digitalarkcorp.filestorage.infrastructure.config;
-
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-import com.digitalarkcorp.filestorage.infrastructure.fs.LocalStorageAdapter;
-import io.minio.MinioClient;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-import java.nio.file.Path;
-
-@Configuration
-public class StorageConfig {
-
-    @Bean
-    public StoragePort storagePort(StorageProperties props, MinioClient minioClient) {
-        String provider = props.getProvider() == null ? "local" : props.getProvider();
-        if ("s3".equalsIgnoreCase(provider)) {
-            return new com.digitalarkcorp.filestorage.infrastructure.s3.S3StorageAdapter(minioClient, props);
-        }
-        String localRootStr = props.getLocalRoot() == null ? "/tmp/filestorage" : props.getLocalRoot();
-        return new LocalStorageAdapter(Path.of(localRootStr));
-    }
-
-    @Bean
-    public MinioClient minioClient(StorageProperties props) {
-        return MinioClient.builder()
-                .endpoint(props.getEndpoint())
-                .credentials(props.getAccessKey(), props.getSecretKey())
-                .build();
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.cache.CachedReactiveStoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.cache.DiskCachingStoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalLayout;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalLayoutMigration;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalReactiveStorageAdapter;
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalStorageAdapter;
+import com.digitalarkcorp.filestorage.infrastructure.metrics.TimedReactiveStoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.metrics.TimedStoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.s3.S3MultipartUploader;
+import com.digitalarkcorp.filestorage.infrastructure.s3.S3ReactiveStorageAdapter;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class StorageConfig {
+
+    private static final long HTTP_TIMEOUT_MILLIS = Duration.ofMinutes(5).toMillis();
+
+    /**
+     * Shared by the local adapters and the layout migration, which turns the flat fallback off for
+     * both; only created when the local provider is in use.
+     */
+    @Bean
+    @Lazy
+    public LocalLayout localLayout(StorageProperties props) {
+        return new LocalLayout(localRoot(props));
+    }
+
+    @Bean
+    public StoragePort storagePort(StorageProperties props, MinioClient minioClient, MinioAsyncClient minioAsyncClient,
+                                   ObjectProvider<LocalLayout> localLayout, ObjectProvider<MeterRegistry> registry) {
+        StoragePort storage;
+        if (isS3(props)) {
+            S3MultipartUploader multipart = new S3MultipartUploader(
+                    minioAsyncClient, props.getPartSize().toBytes(), props.getPartConcurrency(),
+                    props.getMultipartBudget().toBytes());
+            storage = new com.digitalarkcorp.filestorage.infrastructure.s3.S3StorageAdapter(minioClient, props, multipart);
+        } else {
+            storage = new LocalStorageAdapter(localLayout.getObject(), props.getLocalDurability());
+        }
+        // timed beneath the disk cache, so storage.operation only shows backend calls
+        MeterRegistry meters = registry.getIfAvailable(CompositeMeterRegistry::new);
+        storage = new TimedStoragePort(storage, meters);
+        if (hasDiskCache(props)) {
+            storage = new DiskCachingStoragePort(storage, Path.of(props.getCacheDir()),
+                    props.getCacheSize().toBytes(), props.getCacheMaxObjectSize().toBytes(),
+                    Executors.newVirtualThreadPerTaskExecutor(), meters);
+        }
+        return storage;
+    }
+
+    /**
+     * Moves a root written before sharding to the {@code ab/cd/<hash>} layout in the background,
+     * serving from both meanwhile, so a large root does not hold up startup.
+     */
+    @Bean
+    public ApplicationRunner localLayoutMigration(StorageProperties props, ObjectProvider<LocalLayout> localLayout) {
+        return args -> {
+            if (!isS3(props) && props.isLocalMigrateLayout()) {
+                LocalLayoutMigration.start(localLayout.getObject());
+            }
+        };
+    }
+
+    /**
+     * Byte streaming for the reactive edge stack; metadata and uploads still go through {@link StoragePort}.
+     * With a disk cache, reads go through the same cached and timed chain as {@link #storagePort}.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveStoragePort reactiveStoragePort(StorageProperties props, MinioAsyncClient minioAsyncClient,
+                                                   ObjectProvider<LocalLayout> localLayout, StoragePort storagePort,
+                                                   ObjectProvider<MeterRegistry> registry) {
+        if (hasDiskCache(props)) {
+            return new CachedReactiveStoragePort(storagePort, DefaultDataBufferFactory.sharedInstance);
+        }
+        ReactiveStoragePort storage = isS3(props)
+                ? new S3ReactiveStorageAdapter(minioAsyncClient, props, DefaultDataBufferFactory.sharedInstance)
+                : new LocalReactiveStorageAdapter(localLayout.getObject(), DefaultDataBufferFactory.sharedInstance);
+        return new TimedReactiveStoragePort(storage, registry.getIfAvailable(CompositeMeterRegistry::new));
+    }
+
+    private static boolean isS3(StorageProperties props) {
+        return "s3".equalsIgnoreCase(props.getProvider());
+    }
+
+    private static boolean hasDiskCache(StorageProperties props) {
+        return isS3(props) && props.getCacheDir() != null && !props.getCacheDir().isBlank();
+    }
+
+    private static Path localRoot(StorageProperties props) {
+        return Path.of(props.getLocalRoot() == null ? "/tmp/filestorage" : props.getLocalRoot());
+    }
+
+    @Bean
+    public MinioClient minioClient(StorageProperties props, OkHttpClient storageHttpClient) {
+        return MinioClient.builder()
+                .endpoint(props.getEndpoint())
+                .credentials(props.getAccessKey(), props.getSecretKey())
+                .httpClient(storageHttpClient)
+                .build();
+    }
+
+    @Bean
+    public MinioAsyncClient minioAsyncClient(StorageProperties props, OkHttpClient storageHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(props.getEndpoint())
+                .credentials(props.getAccessKey(), props.getSecretKey())
+                .httpClient(storageHttpClient)
+                .build();
+    }
+
+    /**
+     * One HTTP client for both MinIO clients. The MinIO SDK runs every call through OkHttp's
+     * async dispatcher, whose defaults (5 calls per host, a platform-thread pool) would cap
+     * concurrent downloads long before Tomcat does; the limits follow
+     * {@code storage.max-connections}, and the dispatcher runs on virtual threads when
+     * {@code spring.threads.virtual.enabled} is on.
+     */
+    @Bean
+    public OkHttpClient storageHttpClient(StorageProperties props, Environment env) {
+        Dispatcher dispatcher = Threading.VIRTUAL.isActive(env)
+                ? new Dispatcher(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("minio-", 0).factory()))
+                : new Dispatcher();
+        dispatcher.setMaxRequests(props.getMaxConnections());
+        dispatcher.setMaxRequestsPerHost(props.getMaxConnections());
+
+        return HttpUtils.newDefaultHttpClient(HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS, HTTP_TIMEOUT_MILLIS)
+                .newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(props.getMaxConnections(), 5, TimeUnit.MINUTES))
+                .build();
+    }
+}
@@ -1,17 +1,51 @@
-package com.digitalarkcorp.filestorage.infrastructure.config;
-
-import lombok.Data;
-import org.springframework.boot.context.properties.ConfigurationProperties;
-
-@Data
-@ConfigurationProperties(prefix = "storage")
-public class StorageProperties {
-    private String provider;
-    private String localRoot;
-
-    private String endpoint;
-    private String accessKey;
-    private String secretKey;
-    private String bucket;
-    private boolean secure;
-}
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import com.digitalarkcorp.filestorage.infrastructure.fs.LocalStorageAdapter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+    private String provider;
+    private String localRoot;
+
+    // local provider: what is fsynced before a put returns, and whether a flat root is resharded at startup
+    private LocalStorageAdapter.Durability localDurability = LocalStorageAdapter.Durability.FILE;
+    private boolean localMigrateLayout = true;
+
+    private String endpoint;
+    private String accessKey;
+    private String secretKey;
+    private String bucket;
+    private boolean secure;
+
+    // multipart upload (s3 provider); objects of unknown length always go multipart
+    private DataSize multipartThreshold = DataSize.ofMegabytes(64);
+    private DataSize partSize = DataSize.ofMegabytes(16);
+    private int partConcurrency = 4;
+
+    // bytes all concurrent multipart uploads may hold in part buffers; past it parts wait for space
+    private DataSize multipartBudget = DataSize.ofMegabytes(256);
+
+    // uploads up to this size are hashed in memory first, so content already stored is never re-sent
+    private DataSize prehashLimit = DataSize.ofMegabytes(8);
+
+    // bytes all concurrent uploads may hold in memory for prehashing; past it they are streamed
+    private DataSize prehashBudget = DataSize.ofMegabytes(256);
+
+    // new blobs of text-like types are stored gzip-encoded and sent as is to clients accepting gzip
+    private boolean compressAtRest = false;
+
+    // files of one batch upload hashed and stored at the same time
+    private int batchUploadConcurrency = 8;
+
+    // s3 provider: read-through cache of blobs on local disk, off unless cache-dir is set
+    private String cacheDir;
+    private DataSize cacheSize = DataSize.ofGigabytes(10);
+    private DataSize cacheMaxObjectSize = DataSize.ofMegabytes(512);
+
+    // concurrent HTTP calls (and pooled connections) to the s3 endpoint
+    private int maxConnections = 256;
+}
@@ -0,0 +1,23 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import com.digitalarkcorp.filestorage.application.UploadSessionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UploadSweepJob {
+
+    private final UploadSessionService uploads;
+
+    @Scheduled(fixedDelayString = "${app.uploads.sweep-interval}", initialDelayString = "${app.uploads.sweep-interval}")
+    public void sweep() {
+        int deleted = uploads.sweep();
+        if (deleted > 0) {
+            log.info("Deleted {} chunk objects of expired upload sessions", deleted);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stream over a region of a file that reads it positionally, so ranges need no seek or skip
+ * and nothing beyond the caller's buffer is held. {@link #transferTo(OutputStream)}, which
+ * Spring uses to write response bodies, still copies: the target is an ordinary stream, so
+ * {@link FileChannel#transferTo} moves the region through an 8 KiB buffer, not sendfile.
+ */
+class FileChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    FileChannelInputStream(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        long remaining = end - position;
+        if (remaining <= 0) return -1;
+        int r = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (r == -1) return -1;
+        position += r;
+        return r;
+    }
+
+    @Override
+    public long skip(long n) {
+        long s = Math.max(0, Math.min(n, end - position));
+        position += s;
+        return s;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long start = position;
+        while (position < end) {
+            long n = channel.transferTo(position, end - position, target);
+            if (n <= 0) break; // file shrank underneath us
+            position += n;
+        }
+        return position - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
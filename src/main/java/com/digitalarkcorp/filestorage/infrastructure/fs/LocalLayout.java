@@ -0,0 +1,59 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Where the objects of a local root live. Roots written before sharding may still hold flat
+ * {@code <hash>} files, so reads fall back to those until {@link LocalLayoutMigration} has moved
+ * them all and left a marker; new roots are marked as soon as they are opened.
+ */
+public final class LocalLayout {
+
+    static final String SHARDED_MARKER = ".sharded";
+
+    private final Path root;
+    private volatile boolean flatFallback;
+
+    public LocalLayout(Path root) {
+        this.root = root;
+        this.flatFallback = !Files.exists(root.resolve(SHARDED_MARKER)) && !isEmpty(root);
+        if (!flatFallback) {
+            markSharded();
+        }
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /** Whether an object missing from its sharded path may still sit at the flat one. */
+    boolean flatFallback() {
+        return flatFallback;
+    }
+
+    /** Records that no flat object is left; reads stop looking for them, here and after restarts. */
+    void markSharded() {
+        try {
+            Files.createDirectories(root);
+            Files.createFile(root.resolve(SHARDED_MARKER));
+        } catch (FileAlreadyExistsException ignored) {
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flatFallback = false;
+    }
+
+    private static boolean isEmpty(Path root) {
+        if (!Files.isDirectory(root)) return true;
+        try (Stream<Path> entries = Files.list(root)) {
+            return entries.allMatch(p -> p.getFileName().toString().equals(LocalStorageAdapter.STAGING_DIR));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
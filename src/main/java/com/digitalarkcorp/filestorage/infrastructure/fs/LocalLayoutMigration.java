@@ -0,0 +1,89 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Moves objects of a root written before sharding, stored as flat {@code <hash>} files, to
+ * {@code ab/cd/<hash>}. Reads fall back to the flat path, so the service keeps serving while
+ * this runs in the background; once no flat hash file is left the layout is marked sharded,
+ * which turns the fallback off and skips the scan on later starts.
+ */
+@Slf4j
+public final class LocalLayoutMigration {
+
+    /** Staging files this old belong to writes that never finished. */
+    private static final Duration ABANDONED_STAGING = Duration.ofHours(1);
+
+    private LocalLayoutMigration() {
+    }
+
+    /** Runs {@link #migrate} on a virtual thread; a failure is logged and retried on the next start. */
+    public static Thread start(LocalLayout layout) {
+        return Thread.ofVirtual().name("local-layout-migration").start(() -> {
+            try {
+                migrate(layout);
+            } catch (RuntimeException e) {
+                log.warn("Migrating {} to the sharded layout failed; reads keep falling back to flat paths",
+                        layout.root(), e);
+            }
+        });
+    }
+
+    /** Returns the number of objects moved; flat copies of objects already sharded are removed, not counted. */
+    public static int migrate(LocalLayout layout) {
+        Path root = layout.root();
+        purgeStaging(root.resolve(LocalStorageAdapter.STAGING_DIR));
+        if (!layout.flatFallback()) return 0;
+
+        int moved = 0;
+        int duplicates = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path flat : entries) {
+                String key = flat.getFileName().toString();
+                if (!LocalStorageAdapter.isContentKey(key) || !Files.isRegularFile(flat)) continue;
+
+                Path target = LocalStorageAdapter.keyToPath(root, key);
+                if (Files.exists(target)) {
+                    // same key, same content: written again after the upgrade
+                    Files.delete(flat);
+                    duplicates++;
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        layout.markSharded();
+        if (moved > 0 || duplicates > 0) {
+            log.info("Moved {} objects under {} to the sharded layout and removed {} flat duplicates",
+                    moved, root, duplicates);
+        }
+        return moved;
+    }
+
+    private static void purgeStaging(Path staging) {
+        if (!Files.isDirectory(staging)) return;
+        Instant cutoff = Instant.now().minus(ABANDONED_STAGING);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(staging)) {
+            for (Path tmp : entries) {
+                if (Files.getLastModifiedTime(tmp).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
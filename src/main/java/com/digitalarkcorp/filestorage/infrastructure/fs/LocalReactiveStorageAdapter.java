@@ -0,0 +1,36 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads objects of the local provider through {@link AsynchronousFileChannel}: each buffer
+ * is requested only when the subscriber asks for it and no thread waits on the disk.
+ */
+public class LocalReactiveStorageAdapter implements ReactiveStoragePort {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LocalLayout layout;
+    private final DataBufferFactory bufferFactory;
+
+    public LocalReactiveStorageAdapter(LocalLayout layout, DataBufferFactory bufferFactory) {
+        this.layout = layout;
+        this.bufferFactory = bufferFactory;
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String objectKey, long offset, long length) {
+        Flux<DataBuffer> file = DataBufferUtils.readAsynchronousFileChannel(
+                () -> LocalStorageAdapter.onReadPath(layout, objectKey,
+                        p -> AsynchronousFileChannel.open(p, StandardOpenOption.READ)),
+                offset, bufferFactory, BUFFER_SIZE);
+        return DataBufferUtils.takeUntilByteCount(file, length);
+    }
+}
@@ -1,66 +1,249 @@
-package com.digitalarkcorp.filestorage.infrastructure.fs;
-
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-
-public class LocalStorageAdapter implements StoragePort {
-
-    private final Path root;
-
-    public LocalStorageAdapter(Path root) {
-        this.root = root;
-        try {
-            Files.createDirectories(root);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    private Path keyToPath(String objectKey) {
-        return root.resolve(objectKey);
-    }
-
-    @Override
-    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
-        Path p = keyToPath(objectKey);
-        try {
-            Files.createDirectories(p.getParent());
-            try (OutputStream out = Files.newOutputStream(
-                    p, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                data.transferTo(out);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    @Override
-    public Resource get(String objectKey) {
-        Path p = keyToPath(objectKey);
-        try {
-            byte[] bytes = Files.readAllBytes(p);
-            return new Resource(new ByteArrayInputStream(bytes), bytes.length, null);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-
-    @Override
-    public void delete(String objectKey) {
-        Path p = keyToPath(objectKey);
-        try {
-            Files.deleteIfExists(p);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Objects live under {@code root}; content-hash keys fan out as {@code ab/cd/<hash>} so no
+ * directory grows past a few thousand entries. Writes go to a staging file that is renamed
+ * into place, so a crash never leaves a partial file under a valid key.
+ */
+public class LocalStorageAdapter implements StoragePort {
+
+    /** What is flushed to disk before a write is reported as done. */
+    public enum Durability {
+        /** Leave flushing to the OS; a power loss may lose recent objects. */
+        NONE,
+        /** fsync the file before renaming it into place. */
+        FILE,
+        /** Also fsync the target directory, so the rename itself survives a power loss. */
+        FILE_AND_DIRECTORY
+    }
+
+    static final String STAGING_DIR = ".staging";
+
+    /** Content-hash keys, including encoded copies such as {@code <hash>.gz}, live in the shards. */
+    private static final Pattern SHARDED = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]+)?");
+
+    private final LocalLayout layout;
+    private final Path root;
+    private final Path staging;
+    private final Durability durability;
+
+    public LocalStorageAdapter(Path root) {
+        this(root, Durability.FILE);
+    }
+
+    public LocalStorageAdapter(Path root, Durability durability) {
+        this(new LocalLayout(root), durability);
+    }
+
+    public LocalStorageAdapter(LocalLayout layout, Durability durability) {
+        this.layout = layout;
+        this.root = layout.root();
+        this.staging = root.resolve(STAGING_DIR);
+        this.durability = durability;
+        try {
+            Files.createDirectories(staging);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path keyToPath(String objectKey) {
+        return keyToPath(root, objectKey);
+    }
+
+    /** Object layout under {@code root}, shared with {@link LocalReactiveStorageAdapter}. */
+    static Path keyToPath(Path root, String objectKey) {
+        if (SHARDED.matcher(objectKey).matches()) {
+            return root.resolve(objectKey.substring(0, 2)).resolve(objectKey.substring(2, 4)).resolve(objectKey);
+        }
+        return root.resolve(objectKey);
+    }
+
+    /** A content-hash key or an encoded copy of one, such as {@code <hash>.gz}. */
+    public static boolean isContentKey(String objectKey) {
+        return SHARDED.matcher(objectKey).matches();
+    }
+
+    /** An action on the file of a key that fails with {@link NoSuchFileException} when it is not there. */
+    interface PathAction<T> {
+        T apply(Path path) throws IOException;
+    }
+
+    /**
+     * Runs {@code action} on the sharded path, or on the flat one while a root written before
+     * sharding is being migrated. The migration can move the file between two attempts, so a
+     * flat miss goes back to the sharded path once instead of checking which one exists first.
+     */
+    static <T> T onReadPath(LocalLayout layout, String objectKey, PathAction<T> action) throws IOException {
+        Path p = keyToPath(layout.root(), objectKey);
+        try {
+            return action.apply(p);
+        } catch (NoSuchFileException e) {
+            Path flat = layout.root().resolve(objectKey);
+            if (!layout.flatFallback() || flat.equals(p)) throw e;
+            try {
+                return action.apply(flat);
+            } catch (NoSuchFileException moved) {
+                return action.apply(p);
+            }
+        }
+    }
+
+    private FileChannel openForRead(String objectKey) throws IOException {
+        return onReadPath(layout, objectKey, p -> FileChannel.open(p, StandardOpenOption.READ));
+    }
+
+    @Override
+    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+        Path target = keyToPath(objectKey);
+        Path tmp = staging.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                data.transferTo(Channels.newOutputStream(ch));
+                if (durability != Durability.NONE) {
+                    ch.force(true);
+                }
+            }
+            commit(tmp, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            discardStaged(tmp);
+        }
+    }
+
+    @Override
+    public Resource get(String objectKey) {
+        try {
+            FileChannel ch = openForRead(objectKey);
+            long size;
+            try {
+                size = ch.size();
+            } catch (IOException e) {
+                ch.close();
+                throw e;
+            }
+            return new Resource(new FileChannelInputStream(ch, 0, size), size, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Resource get(String objectKey, long offset, long length) {
+        try {
+            FileChannel ch = openForRead(objectKey);
+            return new Resource(new FileChannelInputStream(ch, offset, length), length, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        try {
+            Path target = keyToPath(targetKey);
+            onReadPath(layout, sourceKey, source -> {
+                commit(source, target);
+                return null;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Concatenates the files into a staging file with {@code transferTo}, then renames it into place. */
+    @Override
+    public void compose(List<String> sourceKeys, String targetKey) {
+        Path tmp = staging.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (String key : sourceKeys) {
+                    try (FileChannel in = openForRead(key)) {
+                        long size = in.size();
+                        for (long pos = 0; pos < size; ) {
+                            pos += in.transferTo(pos, size - pos, out);
+                        }
+                    }
+                }
+                if (durability != Durability.NONE) {
+                    out.force(true);
+                }
+            }
+            commit(tmp, keyToPath(targetKey));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            discardStaged(tmp);
+        }
+    }
+
+    @Override
+    public List<String> list(String prefix) {
+        Path dir = root.resolve(prefix);
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .map(p -> root.relativize(p).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(String objectKey) {
+        try {
+            Files.deleteIfExists(keyToPath(objectKey));
+            if (layout.flatFallback()) {
+                Files.deleteIfExists(root.resolve(objectKey));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whatever failed, a write that did not commit leaves nothing in staging, including when the
+     * source stream throws a {@link RuntimeException}. After a commit the file is already gone.
+     */
+    private static void discardStaged(Path tmp) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException ignored) {
+            // purged with the other abandoned staging files by LocalLayoutMigration
+        }
+    }
+
+    /** Renames {@code source} over {@code target} in one step; readers see the old file or the new one. */
+    private void commit(Path source, Path target) throws IOException {
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (durability == Durability.FILE_AND_DIRECTORY) {
+            try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+                d.force(true);
+            }
+        }
+    }
+}
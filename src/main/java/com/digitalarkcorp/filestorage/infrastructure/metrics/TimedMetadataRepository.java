@@ -0,0 +1,120 @@
+package com.digitalarkcorp.filestorage.infrastructure.metrics;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/** Times every repository call as {@code metadata.repository}, tagged by method and outcome. */
+public class TimedMetadataRepository implements MetadataRepository {
+
+    private final MetadataRepository delegate;
+    private final MeterRegistry meters;
+
+    public TimedMetadataRepository(MetadataRepository delegate, MeterRegistry meters) {
+        this.delegate = delegate;
+        this.meters = meters;
+    }
+
+    @Override
+    public FileMetadata save(FileMetadata m) {
+        return timed("save", () -> delegate.save(m));
+    }
+
+    @Override
+    public List<Saved> saveAll(List<FileMetadata> files) {
+        return timed("saveAll", () -> delegate.saveAll(files));
+    }
+
+    @Override
+    public FileMetadata findById(String id) {
+        return timed("findById", () -> delegate.findById(id));
+    }
+
+    @Override
+    public FileMetadata findByLinkId(String linkId) {
+        return timed("findByLinkId", () -> delegate.findByLinkId(linkId));
+    }
+
+    @Override
+    public void rename(String id, String newFilename, Instant now) {
+        timed("rename", () -> {
+            delegate.rename(id, newFilename, now);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deleteByIdAndOwner(String id, String ownerId) {
+        return timed("deleteByIdAndOwner", () -> delegate.deleteByIdAndOwner(id, ownerId));
+    }
+
+    @Override
+    public List<FileMetadata> findAllById(Collection<String> ids) {
+        return timed("findAllById", () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public long deleteAllByIdsAndOwner(Collection<String> ids, String ownerId) {
+        return timed("deleteAllByIdsAndOwner", () -> delegate.deleteAllByIdsAndOwner(ids, ownerId));
+    }
+
+    @Override
+    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
+        return timed("listByOwner", () -> delegate.listByOwner(ownerId, query));
+    }
+
+    @Override
+    public List<FileMetadata> listPublic(ListQuery query) {
+        return timed("listPublic", () -> delegate.listPublic(query));
+    }
+
+    @Override
+    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
+        return timed("existsByOwnerAndFilename", () -> delegate.existsByOwnerAndFilename(ownerId, filename));
+    }
+
+    @Override
+    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
+        return timed("existsByOwnerAndContentHash", () -> delegate.existsByOwnerAndContentHash(ownerId, contentHash));
+    }
+
+    @Override
+    public long countByContentHash(String contentHash) {
+        return timed("countByContentHash", () -> delegate.countByContentHash(contentHash));
+    }
+
+    @Override
+    public Map<String, Long> countByContentHashes(Collection<String> contentHashes) {
+        return timed("countByContentHashes", () -> delegate.countByContentHashes(contentHashes));
+    }
+
+    @Override
+    public boolean existsByContentHash(String contentHash) {
+        return timed("existsByContentHash", () -> delegate.existsByContentHash(contentHash));
+    }
+
+    @Override
+    public FileMetadata findReadableByContentHash(String ownerId, String contentHash) {
+        return timed("findReadableByContentHash", () -> delegate.findReadableByContentHash(ownerId, contentHash));
+    }
+
+    private <T> T timed(String method, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meters);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meters.timer("metadata.repository", "method", method, "outcome", outcome));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.digitalarkcorp.filestorage.infrastructure.metrics;
+
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link TimedStoragePort} for the edge stack: records {@code storage.operation} for
+ * {@code get_range} from subscription to the first buffer, the reactive counterpart of
+ * opening the object; the body is measured by the download meters.
+ */
+public class TimedReactiveStoragePort implements ReactiveStoragePort {
+
+    private final ReactiveStoragePort delegate;
+    private final MeterRegistry meters;
+
+    public TimedReactiveStoragePort(ReactiveStoragePort delegate, MeterRegistry meters) {
+        this.delegate = delegate;
+        this.meters = meters;
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String objectKey, long offset, long length) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meters);
+            AtomicBoolean stopped = new AtomicBoolean();
+            return delegate.get(objectKey, offset, length)
+                    .doOnNext(b -> stop(sample, stopped, "success"))
+                    .doOnComplete(() -> stop(sample, stopped, "success"))
+                    .doOnError(e -> stop(sample, stopped, "error"))
+                    .doOnCancel(() -> stop(sample, stopped, "cancelled"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, AtomicBoolean stopped, String outcome) {
+        if (stopped.compareAndSet(false, true)) {
+            sample.stop(meters.timer("storage.operation", "operation", "get_range", "outcome", outcome));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.digitalarkcorp.filestorage.infrastructure.metrics;
+
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Times every storage call as {@code storage.operation}, tagged by operation and outcome.
+ * {@code put} covers the whole transfer; the gets only cover opening the object, since the
+ * body is read later by the response and measured by the download meters.
+ */
+public class TimedStoragePort implements StoragePort {
+
+    private final StoragePort delegate;
+    private final MeterRegistry meters;
+
+    public TimedStoragePort(StoragePort delegate, MeterRegistry meters) {
+        this.delegate = delegate;
+        this.meters = meters;
+    }
+
+    @Override
+    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+        timed("put", () -> {
+            delegate.put(objectKey, data, contentLength, contentType);
+            return null;
+        });
+    }
+
+    @Override
+    public Resource get(String objectKey) {
+        return timed("get", () -> delegate.get(objectKey));
+    }
+
+    @Override
+    public Resource get(String objectKey, long offset, long length) {
+        return timed("get_range", () -> delegate.get(objectKey, offset, length));
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        timed("move", () -> {
+            delegate.move(sourceKey, targetKey);
+            return null;
+        });
+    }
+
+    @Override
+    public void compose(List<String> sourceKeys, String targetKey) {
+        timed("compose", () -> {
+            delegate.compose(sourceKeys, targetKey);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> list(String prefix) {
+        return timed("list", () -> delegate.list(prefix));
+    }
+
+    @Override
+    public void delete(String objectKey) {
+        timed("delete", () -> {
+            delegate.delete(objectKey);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> delete(Collection<String> objectKeys) {
+        return timed("deleteBatch", () -> delegate.delete(objectKeys));
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meters);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meters.timer("storage.operation", "operation", operation, "outcome", outcome));
+        }
+    }
+}
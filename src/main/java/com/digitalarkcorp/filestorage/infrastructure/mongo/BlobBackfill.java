@@ -0,0 +1,81 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.infrastructure.config.BlobProperties;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Creates blob records for content stored before references were counted, with the number
+ * of files that point at it. It groups the whole files collection, so it is off by default and
+ * meant to be enabled once, when upgrading; existing records are left alone, and the collector
+ * re-counts files before deleting anything, which covers the gap between the aggregation and
+ * the writes. Counts that drift later are repaired by {@code BlobCollector#reconcile}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlobBackfill implements ApplicationRunner {
+
+    private static final int BATCH = 500;
+
+    private final MongoTemplate template;
+    private final BlobProperties props;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!props.backfill()) {
+            return;
+        }
+        var blobs = template.getCollection(MongoBlobRepository.COL);
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        long created = 0;
+        Date now = new Date();
+
+        var groups = template.getCollection("files").aggregate(List.of(
+                Aggregates.group("$contentHash",
+                        Accumulators.sum("refs", 1L),
+                        Accumulators.first("size", "$size"))
+        )).allowDiskUse(true);
+
+        for (Document g : groups) {
+            if (g.get("_id") == null) continue;
+            batch.add(new UpdateOneModel<>(
+                    Filters.eq("_id", g.get("_id")),
+                    Updates.combine(
+                            Updates.setOnInsert("refs", g.get("refs")),
+                            Updates.setOnInsert("size", g.get("size")),
+                            Updates.setOnInsert("stored", true),
+                            Updates.setOnInsert("createdAt", now),
+                            Updates.setOnInsert("updatedAt", now)
+                    ),
+                    new UpdateOptions().upsert(true)
+            ));
+            if (batch.size() == BATCH) {
+                created += blobs.bulkWrite(batch).getUpserts().size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            created += blobs.bulkWrite(batch).getUpserts().size();
+        }
+        if (created > 0) {
+            log.info("Backfilled {} blob records", created);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.api.errors.UnavailableException;
+import com.digitalarkcorp.filestorage.domain.Blob;
+import com.digitalarkcorp.filestorage.domain.ports.BlobRepository;
+import com.digitalarkcorp.filestorage.infrastructure.mongo.model.BlobDocument;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Repository
+public class MongoBlobRepository implements BlobRepository {
+
+    static final String COL = "blobs";
+
+    private static final long ACQUIRE_BACKOFF_MILLIS = 100;
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final MongoTemplate mongo;
+
+    public MongoBlobRepository(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public Blob acquire(String hash, long size, Instant now) {
+        // a claimed record does not match, so the upsert collides on _id until the collector removes it
+        Query q = new Query(where("_id").is(hash).and("collectingAt").is(null));
+        Update u = new Update()
+                .inc("refs", 1)
+                .set("updatedAt", now)
+                .setOnInsert("size", size)
+                .setOnInsert("stored", false)
+                .setOnInsert("createdAt", now);
+        FindAndModifyOptions upsert = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        try {
+            return map(mongo.findAndModify(q, u, upsert, BlobDocument.class, COL));
+        } catch (DuplicateKeyException first) {
+            // collection normally finishes within one pause; past that, the client retries
+            pause();
+            try {
+                return map(mongo.findAndModify(q, u, upsert, BlobDocument.class, COL));
+            } catch (DuplicateKeyException e) {
+                throw new UnavailableException("content is being collected, retry shortly", RETRY_AFTER, e);
+            }
+        }
+    }
+
+    @Override
+    public Blob markStored(String hash, String encoding, long storedSize) {
+        // first writer wins; a later one gets the record back and adopts its representation
+        Query q = new Query(where("_id").is(hash).and("stored").is(false));
+        Update u = new Update()
+                .set("stored", true)
+                .set("encoding", encoding)
+                .set("storedSize", storedSize);
+        BlobDocument d = mongo.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), BlobDocument.class, COL);
+        if (d == null) {
+            d = mongo.findById(hash, BlobDocument.class, COL);
+        }
+        return d == null ? null : map(d);
+    }
+
+    @Override
+    public long release(String hash, Instant now) {
+        Query q = new Query(where("_id").is(hash));
+        Update u = new Update().inc("refs", -1).set("updatedAt", now);
+        BlobDocument d = mongo.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), BlobDocument.class, COL);
+        return d == null ? -1 : d.refs();
+    }
+
+    @Override
+    public Set<String> release(Map<String, Long> counts, Instant now) {
+        Set<String> unrecorded = new HashSet<>(counts.keySet());
+        Query existing = new Query(where("_id").in(counts.keySet()));
+        existing.fields().include("_id");
+        for (BlobDocument d : mongo.find(existing, BlobDocument.class, COL)) {
+            unrecorded.remove(d.id());
+        }
+        if (unrecorded.size() < counts.size()) {
+            BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, BlobDocument.class, COL);
+            counts.forEach((hash, n) -> {
+                if (!unrecorded.contains(hash)) {
+                    bulk.updateOne(new Query(where("_id").is(hash)), new Update().inc("refs", -n).set("updatedAt", now));
+                }
+            });
+            bulk.execute();
+        }
+        return unrecorded;
+    }
+
+    @Override
+    public Blob claimCollectable(Instant releasedBefore, Instant now) {
+        Query q = new Query(where("refs").lte(0).and("updatedAt").lt(releasedBefore)
+                .orOperator(where("collectingAt").is(null), where("collectingAt").lt(releasedBefore)));
+        Update u = new Update().set("collectingAt", now);
+        BlobDocument d = mongo.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), BlobDocument.class, COL);
+        return d == null ? null : map(d);
+    }
+
+    @Override
+    public void restore(String hash, long refs, boolean stored, Instant now) {
+        Update u = new Update()
+                .set("refs", refs)
+                .set("stored", stored)
+                .set("updatedAt", now)
+                .unset("collectingAt");
+        mongo.updateFirst(new Query(where("_id").is(hash)), u, BlobDocument.class, COL);
+    }
+
+    @Override
+    public void delete(String hash) {
+        Query q = new Query(where("_id").is(hash).and("collectingAt").ne(null).and("refs").lte(0));
+        mongo.remove(q, BlobDocument.class, COL);
+    }
+
+    @Override
+    public List<Blob> findSettled(String afterHash, Instant changedBefore, int limit) {
+        Query q = new Query(where("refs").gt(0).and("collectingAt").is(null).and("updatedAt").lt(changedBefore));
+        if (afterHash != null) {
+            q.addCriteria(where("_id").gt(afterHash));
+        }
+        q.with(Sort.by("_id")).limit(limit);
+        return mongo.find(q, BlobDocument.class, COL).stream().map(MongoBlobRepository::map).toList();
+    }
+
+    @Override
+    public boolean correct(Blob seen, long refs, Instant now) {
+        Query q = new Query(where("_id").is(seen.hash()).and("refs").is(seen.refs())
+                .and("updatedAt").is(seen.updatedAt()).and("collectingAt").is(null));
+        Update u = new Update().set("refs", refs).set("updatedAt", now);
+        return mongo.updateFirst(q, u, BlobDocument.class, COL).getModifiedCount() > 0;
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(ACQUIRE_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnavailableException("interrupted while waiting for blob collection", RETRY_AFTER, e);
+        }
+    }
+
+    private static Blob map(BlobDocument d) {
+        // records written before compression have neither field: verbatim, stored size = size
+        long storedSize = d.storedSize() == null ? d.size() : d.storedSize();
+        return new Blob(d.id(), d.size(), d.refs(), d.stored(), d.encoding(), storedSize, d.createdAt(), d.updatedAt());
+    }
+}
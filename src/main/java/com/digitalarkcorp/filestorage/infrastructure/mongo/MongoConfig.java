@@ -1,17 +1,37 @@
-package com.digitalarkcorp.filestorage.infrastructure.mongo;
-
-import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Primary;
-import org.springframework.data.mongodb.core.MongoTemplate;
-
-@Configuration
-public class MongoConfig {
-
-    @Bean
-    @Primary
-    public MetadataRepository metadataRepository(MongoTemplate template) {
-        return new MongoFileMetadataRepository(template);
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.infrastructure.cache.CachingMetadataRepository;
+import com.digitalarkcorp.filestorage.infrastructure.config.MetadataCacheProperties;
+import com.digitalarkcorp.filestorage.infrastructure.metrics.TimedMetadataRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    @Primary
+    public MetadataRepository metadataRepository(MongoTemplate template,
+                                                 MetadataCacheProperties cache,
+                                                 ObjectProvider<MeterRegistry> registry) {
+        MetadataRepository repository = new MongoFileMetadataRepository(template);
+        // timed inside the cache, so the timers show Mongo round trips only
+        MeterRegistry meters = registry.getIfAvailable();
+        if (meters != null) {
+            repository = new TimedMetadataRepository(repository, meters);
+        }
+        if (!cache.enabled()) {
+            return repository;
+        }
+        CachingMetadataRepository caching = new CachingMetadataRepository(repository, cache.maxSize(), cache.ttl());
+        if (meters != null) {
+            caching.bindTo(meters);
+        }
+        return caching;
+    }
+}
@@ -1,263 +1,426 @@
-package com.digitalarkcorp.filestorage.infrastructure.mongo;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
-import com.digitalarkcorp.filestorage.infrastructure.mongo.model.FileMetadataDocument;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.core.query.Update;
-import org.springframework.stereotype.Repository;
-
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Pattern;
-
-import static org.springframework.data.mongodb.core.query.Criteria.where;
-
-@Repository
-public class MongoFileMetadataRepository implements MetadataRepository {
-
-    private static final String COL = "files";
-
-    private final MongoTemplate mongo;
-
-    public MongoFileMetadataRepository(MongoTemplate mongo) {
-        this.mongo = mongo;
-    }
-
-    @Override
-    public FileMetadata save(FileMetadata m) {
-        FileMetadataDocument d = new FileMetadataDocument(
-                null,
-                m.ownerId(),
-                m.filename(),
-                m.visibility().name(),
-                m.tags(),
-                m.size(),
-                m.contentType(),
-                m.contentHash(),
-                m.linkId(),
-                m.status().name(),
-                m.createdAt(),
-                m.updatedAt()
-        );
-
-        d = mongo.insert(d, "files");
-
-        return map(d);
-    }
-
-    private FileMetadata map(FileMetadataDocument d) {
-        return new FileMetadata(
-                d.id(),
-                d.ownerId(),
-                d.filename(),
-                com.digitalarkcorp.filestorage.domain.Visibility.valueOf(d.visibility()),
-                d.tags(),
-                d.size(),
-                d.contentType(),
-                d.contentHash(),
-                d.linkId(),
-                com.digitalarkcorp.filestorage.domain.FileMetadata.FileStatus.valueOf(d.status()),
-                d.createdAt(),
-                d.updatedAt()
-        );
-    }
-
-    @Override
-    public FileMetadata findById(String id) {
-        FileMetadataDocument d = mongo.findById(id, FileMetadataDocument.class, COL);
-        return d == null ? null : map(d);
-    }
-
-    @Override
-    public FileMetadata findByLinkId(String linkId) {
-        Query q = new Query(where("linkId").is(linkId));
-        FileMetadataDocument d = mongo.findOne(q, FileMetadataDocument.class, COL);
-        return d == null ? null : map(d);
-    }
-
-    @Override
-    public void rename(String id, String newFilename, Instant now) {
-        Query q = new Query(Criteria.where("_id").is(id));
-        Update u = new Update().set("filename", newFilename).set("updatedAt", now);
-        mongo.updateFirst(q, u, "files");
-    }
-
-
-    @Override
-    public boolean deleteByIdAndOwner(String id, String ownerId) {
-        Query q = new Query(where("_id").is(id).and("ownerId").is(ownerId));
-        var res = mongo.remove(q, COL);
-        return res.getDeletedCount() > 0;
-    }
-
-    @Override
-    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
-        List<Criteria> ands = new ArrayList<>();
-        ands.add(Criteria.where("ownerId").is(ownerId));
-
-        if (hasText(query.tag())) {
-            Pattern p = Pattern.compile("^" + Pattern.quote(query.tag()) + "$", Pattern.CASE_INSENSITIVE);
-            ands.add(Criteria.where("tags").elemMatch(Criteria.where("$regex").is(p)));
-        }
-
-        if (hasText(query.q())) {
-            Pattern rx = Pattern.compile(Pattern.quote(query.q()), Pattern.CASE_INSENSITIVE);
-            ands.add(Criteria.where("filename").regex(rx));
-        }
-
-        Query q = new Query(new Criteria().andOperator(ands.toArray(Criteria[]::new)));
-
-        // sort
-        String field = switch (query.sortBy()) {
-            case FILENAME -> "filename";
-            case CREATED_AT -> "createdAt";
-            case UPDATED_AT -> "updatedAt";
-            case CONTENT_TYPE -> "contentType";
-            default -> "createdAt";
-        };
-        q.with(Sort.by(query.sortDir() == ListQuery.SortDir.ASC ? Sort.Direction.ASC : Sort.Direction.DESC, field));
-
-        // page clamp
-        int size = Math.min(Math.max(query.size(), 1), 100);
-        int page = Math.max(query.page(), 0);
-        q.skip((long) page * size).limit(size);
-
-        var docs = mongo.find(q, FileMetadataDocument.class, COL);
-        return docs.stream().map(this::map).toList();
-    }
-
-    private Query ownerQuery(String ownerId, ListQuery query) {
-        Criteria c = Criteria.where("ownerId").is(ownerId);
-
-        if (query.q() != null && !query.q().isBlank()) {
-            String esc = Pattern.quote(query.q());
-            c = new Criteria().andOperator(
-                    Criteria.where("ownerId").is(ownerId),
-                    Criteria.where("filename").regex(esc, "i")
-            );
-        }
-        if (query.tag() != null && !query.tag().isBlank()) {
-            String escTag = Pattern.quote(query.tag());
-            c = new Criteria().andOperator(
-                    c,
-                    Criteria.where("tags").regex("^" + escTag + "$", "i")
-            );
-        }
-        Query q = new Query(c);
-
-        String field = switch (query.sortBy()) {
-            case FILENAME -> "filename";
-            case CREATED_AT -> "createdAt";
-            case UPDATED_AT -> "updatedAt";
-            case CONTENT_TYPE -> "contentType";
-            default -> "createdAt";
-        };
-        q.with(Sort.by(query.sortDir() == ListQuery.SortDir.ASC ? Sort.Direction.ASC : Sort.Direction.DESC, field));
-
-        int size = Math.min(Math.max(query.size(), 1), 100);
-        int page = Math.max(query.page(), 0);
-        q.skip((long) page * size).limit(size);
-        return q;
-    }
-
-    @Override
-    public List<FileMetadata> listPublic(ListQuery query) {
-        List<Criteria> ands = new ArrayList<>();
-        ands.add(Criteria.where("visibility").is("PUBLIC"));
-
-        if (hasText(query.tag())) {
-            Pattern p = Pattern.compile("^" + Pattern.quote(query.tag()) + "$", Pattern.CASE_INSENSITIVE);
-            ands.add(Criteria.where("tags").elemMatch(Criteria.where("$regex").is(p)));
-        }
-        if (hasText(query.q())) {
-            Pattern rx = Pattern.compile(Pattern.quote(query.q()), Pattern.CASE_INSENSITIVE);
-            ands.add(Criteria.where("filename").regex(rx));
-        }
-
-        Query q = new Query(new Criteria().andOperator(ands.toArray(Criteria[]::new)));
-
-        String field = switch (query.sortBy()) {
-            case FILENAME -> "filename";
-            case CREATED_AT -> "createdAt";
-            case UPDATED_AT -> "updatedAt";
-            case CONTENT_TYPE -> "contentType";
-            default -> "createdAt";
-        };
-        q.with(Sort.by(query.sortDir() == ListQuery.SortDir.ASC ? Sort.Direction.ASC : Sort.Direction.DESC, field));
-
-        int size = Math.min(Math.max(query.size(), 1), 100);
-        int page = Math.max(query.page(), 0);
-        q.skip((long) page * size).limit(size);
-
-        var docs = mongo.find(q, FileMetadataDocument.class, COL);
-        return docs.stream().map(this::map).toList();
-    }
-
-
-    @Override
-    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
-        Query q = new Query(where("ownerId").is(ownerId).and("filename").is(filename));
-        return mongo.exists(q, FileMetadataDocument.class, COL);
-    }
-
-    @Override
-    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
-        Query q = new Query(where("ownerId").is(ownerId).and("contentHash").is(contentHash));
-        return mongo.exists(q, FileMetadataDocument.class, COL);
-    }
-
-    @Override
-    public long countByContentHash(String contentHash) {
-        Query q = new Query(where("contentHash").is(contentHash));
-        return mongo.count(q, FileMetadataDocument.class, COL);
-    }
-
-    private static boolean hasText(String s) {
-        return s != null && !s.isBlank();
-    }
-
-    private static void applyFilters(Query q, ListQuery query) {
-        if (hasText(query.q())) {
-            Pattern rx = Pattern.compile(Pattern.quote(query.q()), Pattern.CASE_INSENSITIVE);
-            q.addCriteria(where("filename").regex(rx));
-        }
-        if (hasText(query.tag())) {
-            Pattern p = Pattern.compile("^" + Pattern.quote(query.tag()) + "$", Pattern.CASE_INSENSITIVE);
-            q.addCriteria(where("tags").elemMatch(where("$regex").is(p)));
-        }
-    }
-
-    private static void applyPagingAndSorting(Query q, ListQuery query) {
-        // null-safe paging
-        Integer pObj = query.page();
-        Integer sObj = query.size();
-
-        int page = (pObj == null || pObj < 0) ? 0 : pObj;
-        int size = (sObj == null || sObj <= 0) ? 20 : Math.min(sObj, 100);
-
-        q.skip((long) page * size).limit(size);
-
-        // null-safe sort
-        var by  = (query.sortBy()  != null) ? query.sortBy()  : ListQuery.SortBy.CREATED_AT;
-        var dir = (query.sortDir() != null && query.sortDir() == ListQuery.SortDir.ASC)
-                ? Sort.Direction.ASC : Sort.Direction.DESC;
-
-        String field = switch (by) {
-            case UPDATED_AT   -> "updatedAt";
-            case FILENAME     -> "filename";
-            case SIZE         -> "size";
-            case CONTENT_TYPE -> "contentType";
-            case CREATED_AT   -> "createdAt";
-            case TAG          -> "tags";
-            default           -> "createdAt";
-        };
-
-        q.with(Sort.by(dir, field));
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.application.util.FileQueries;
+import com.digitalarkcorp.filestorage.application.util.ListCursor;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+import com.digitalarkcorp.filestorage.infrastructure.mongo.model.FileMetadataDocument;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Repository
+public class MongoFileMetadataRepository implements MetadataRepository {
+
+    private static final String COL = "files";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongo;
+
+    public MongoFileMetadataRepository(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public FileMetadata save(FileMetadata m) {
+        FileMetadataDocument d = document(null, m);
+        try {
+            d = mongo.insert(d, "files");
+        } catch (DuplicateKeyException e) {
+            throw conflict(m, e);
+        }
+
+        return map(d);
+    }
+
+    /**
+     * One unordered bulk insert: a rejected record does not stop the others. Ids are assigned
+     * here, since a bulk insert does not hand the generated ones back.
+     */
+    @Override
+    public List<Saved> saveAll(List<FileMetadata> files) {
+        if (files.isEmpty()) return List.of();
+        List<FileMetadataDocument> docs = new ArrayList<>(files.size());
+        for (FileMetadata m : files) {
+            docs.add(document(new ObjectId().toHexString(), m));
+        }
+
+        RuntimeException[] errors = new RuntimeException[docs.size()];
+        try {
+            mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, FileMetadataDocument.class, COL)
+                    .insert(docs)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                errors[error.getIndex()] = error.getCode() == DUPLICATE_KEY
+                        ? conflict(files.get(error.getIndex()), new DuplicateKeyException(error.getMessage(), e))
+                        : new DataIntegrityViolationException(error.getMessage(), e);
+            }
+        }
+
+        List<Saved> saved = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            saved.add(errors[i] == null ? new Saved(map(docs.get(i)), null) : new Saved(null, errors[i]));
+        }
+        return saved;
+    }
+
+    private static FileMetadataDocument document(String id, FileMetadata m) {
+        return new FileMetadataDocument(
+                id,
+                m.ownerId(),
+                m.filename(),
+                m.visibility().name(),
+                m.tags(),
+                m.size(),
+                m.contentType(),
+                m.contentHash(),
+                m.linkId(),
+                m.status().name(),
+                m.createdAt(),
+                m.updatedAt(),
+                m.contentEncoding(),
+                m.storedSize(),
+                FileQueries.searchKeys(m.tags()),
+                FileQueries.searchKey(m.filename()),
+                FileQueries.trigrams(FileQueries.searchKey(m.filename()))
+        );
+    }
+
+    /**
+     * Which unique index rejected {@code m}. The driver keeps the duplicate-key code of a write
+     * error but not the index it hit, so the two unique keys are looked up instead of reading
+     * the error text; a duplicate on anything else is not a client conflict.
+     */
+    private RuntimeException conflict(FileMetadata m, RuntimeException e) {
+        if (existsByOwnerAndFilename(m.ownerId(), m.filename())) {
+            return new ConflictException("filename already exists for owner");
+        }
+        if (existsByOwnerAndContentHash(m.ownerId(), m.contentHash())) {
+            return new ConflictException("content already exists for owner");
+        }
+        return e;
+    }
+
+    static FileMetadata map(FileMetadataDocument d) {
+        return new FileMetadata(
+                d.id(),
+                d.ownerId(),
+                d.filename(),
+                com.digitalarkcorp.filestorage.domain.Visibility.valueOf(d.visibility()),
+                d.tags(),
+                d.size(),
+                d.contentType(),
+                d.contentHash(),
+                d.linkId(),
+                com.digitalarkcorp.filestorage.domain.FileMetadata.FileStatus.valueOf(d.status()),
+                d.createdAt(),
+                d.updatedAt(),
+                d.contentEncoding(),
+                d.storedSize() == null ? d.size() : d.storedSize()
+        );
+    }
+
+    @Override
+    public FileMetadata findById(String id) {
+        FileMetadataDocument d = mongo.findById(id, FileMetadataDocument.class, COL);
+        return d == null ? null : map(d);
+    }
+
+    @Override
+    public FileMetadata findByLinkId(String linkId) {
+        Query q = new Query(where("linkId").is(linkId));
+        FileMetadataDocument d = mongo.findOne(q, FileMetadataDocument.class, COL);
+        return d == null ? null : map(d);
+    }
+
+    @Override
+    public void rename(String id, String newFilename, Instant now) {
+        Query q = new Query(Criteria.where("_id").is(id));
+        String norm = FileQueries.searchKey(newFilename);
+        Update u = new Update()
+                .set("filename", newFilename)
+                .set("filenameNorm", norm)
+                .set("filenameGrams", FileQueries.trigrams(norm))
+                .set("updatedAt", now);
+        try {
+            mongo.updateFirst(q, u, "files");
+        } catch (DuplicateKeyException e) {
+            // only the filename changes, so (owner, filename) is the one unique key it can hit
+            throw new ConflictException("filename already exists for owner");
+        }
+    }
+
+
+    @Override
+    public boolean deleteByIdAndOwner(String id, String ownerId) {
+        Query q = new Query(where("_id").is(id).and("ownerId").is(ownerId));
+        var res = mongo.remove(q, COL);
+        return res.getDeletedCount() > 0;
+    }
+
+    @Override
+    public List<FileMetadata> findAllById(Collection<String> ids) {
+        Query q = new Query(where("_id").in(ids));
+        return mongo.find(q, FileMetadataDocument.class, COL).stream()
+                .map(MongoFileMetadataRepository::map)
+                .toList();
+    }
+
+    @Override
+    public long deleteAllByIdsAndOwner(Collection<String> ids, String ownerId) {
+        Query q = new Query(where("_id").in(ids).and("ownerId").is(ownerId));
+        return mongo.remove(q, FileMetadataDocument.class, COL).getDeletedCount();
+    }
+
+    @Override
+    public List<FileMetadata> listByOwner(String ownerId, ListQuery query) {
+        List<Criteria> ands = new ArrayList<>();
+        ands.add(Criteria.where("ownerId").is(ownerId));
+        addSearchFilters(ands, query);
+
+        return page(ands, query);
+    }
+
+    private Query ownerQuery(String ownerId, ListQuery query) {
+        Criteria c = Criteria.where("ownerId").is(ownerId);
+
+        if (query.q() != null && !query.q().isBlank()) {
+            String esc = Pattern.quote(query.q());
+            c = new Criteria().andOperator(
+                    Criteria.where("ownerId").is(ownerId),
+                    Criteria.where("filename").regex(esc, "i")
+            );
+        }
+        if (query.tag() != null && !query.tag().isBlank()) {
+            String escTag = Pattern.quote(query.tag());
+            c = new Criteria().andOperator(
+                    c,
+                    Criteria.where("tags").regex("^" + escTag + "$", "i")
+            );
+        }
+        Query q = new Query(c);
+
+        String field = switch (query.sortBy()) {
+            case FILENAME -> "filename";
+            case CREATED_AT -> "createdAt";
+            case UPDATED_AT -> "updatedAt";
+            case CONTENT_TYPE -> "contentType";
+            default -> "createdAt";
+        };
+        q.with(Sort.by(query.sortDir() == ListQuery.SortDir.ASC ? Sort.Direction.ASC : Sort.Direction.DESC, field));
+
+        int size = Math.min(Math.max(query.size(), 1), 100);
+        int page = Math.max(query.page(), 0);
+        q.skip((long) page * size).limit(size);
+        return q;
+    }
+
+    @Override
+    public List<FileMetadata> listPublic(ListQuery query) {
+        List<Criteria> ands = new ArrayList<>();
+        ands.add(Criteria.where("visibility").is("PUBLIC"));
+        addSearchFilters(ands, query);
+
+        return page(ands, query);
+    }
+
+    /**
+     * Tag is an exact match on the lowercase shadow field. Filename "contains" narrows
+     * candidates through the trigram index and confirms with a case-sensitive regex on the
+     * lowercase name; queries shorter than a trigram only get the regex.
+     */
+    private static void addSearchFilters(List<Criteria> ands, ListQuery query) {
+        if (hasText(query.tag())) {
+            ands.add(Criteria.where("tagsNorm").is(FileQueries.searchKey(query.tag())));
+        }
+        if (hasText(query.q())) {
+            String nq = FileQueries.searchKey(query.q());
+            List<String> grams = FileQueries.trigrams(nq);
+            if (!grams.isEmpty()) {
+                ands.add(Criteria.where("filenameGrams").all(grams));
+            }
+            ands.add(Criteria.where("filenameNorm").regex(Pattern.quote(nq)));
+        }
+    }
+
+    /**
+     * Sorts on the requested field with {@code _id} as tie-breaker. With a cursor the page
+     * starts strictly after the cursor's (value, id) instead of skipping documents.
+     */
+    private List<FileMetadata> page(List<Criteria> ands, ListQuery query) {
+        ListQuery.SortBy sortBy = (query.sortBy() != null) ? query.sortBy() : ListQuery.SortBy.CREATED_AT;
+        ListQuery.SortDir sortDir = (query.sortDir() != null) ? query.sortDir() : ListQuery.SortDir.DESC;
+        Sort.Direction dir = sortDir == ListQuery.SortDir.ASC ? Sort.Direction.ASC : Sort.Direction.DESC;
+        String field = sortField(sortBy);
+
+        int size = Math.min(Math.max(query.size() == null ? 20 : query.size(), 1), 100);
+
+        if (hasText(query.cursor())) {
+            ListCursor cursor = ListCursor.decode(query.cursor());
+            if (cursor.sortBy() != sortBy || cursor.sortDir() != sortDir) {
+                throw new IllegalArgumentException("cursor does not match sort order");
+            }
+            ands.add(after(field, dir, mongoValue(cursor.value()), idValue(cursor.id())));
+        }
+
+        Query q = new Query(new Criteria().andOperator(ands.toArray(Criteria[]::new)));
+        q.with(Sort.by(dir, field).and(Sort.by(dir, "_id")));
+        if (!hasText(query.cursor())) {
+            int page = Math.max(query.page() == null ? 0 : query.page(), 0);
+            q.skip((long) page * size);
+        }
+        q.limit(size);
+
+        var docs = mongo.find(q, FileMetadataDocument.class, COL);
+        return docs.stream().map(MongoFileMetadataRepository::map).toList();
+    }
+
+    static String sortField(ListQuery.SortBy sortBy) {
+        return switch (sortBy) {
+            case FILENAME -> "filename";
+            case UPDATED_AT -> "updatedAt";
+            case CONTENT_TYPE -> "contentType";
+            case SIZE -> "size";
+            default -> "createdAt";
+        };
+    }
+
+    /** Documents strictly after (value, id) in the given direction; null sorts lowest in Mongo. */
+    private static Criteria after(String field, Sort.Direction dir, Object value, Object id) {
+        boolean asc = dir == Sort.Direction.ASC;
+        Criteria sameValue = asc
+                ? where(field).is(value).and("_id").gt(id)
+                : where(field).is(value).and("_id").lt(id);
+        if (value == null) {
+            return asc ? new Criteria().orOperator(where(field).ne(null), sameValue) : sameValue;
+        }
+        Criteria beyond = asc ? where(field).gt(value) : where(field).lt(value);
+        if (!asc) {
+            // nulls come after every value in descending order
+            return new Criteria().orOperator(beyond, sameValue, where(field).is(null));
+        }
+        return new Criteria().orOperator(beyond, sameValue);
+    }
+
+    private static Object mongoValue(Object v) {
+        return (v instanceof Instant i) ? Date.from(i) : v;
+    }
+
+    private static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    @Override
+    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
+        Query q = new Query(where("ownerId").is(ownerId).and("filename").is(filename));
+        return mongo.exists(q, FileMetadataDocument.class, COL);
+    }
+
+    @Override
+    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
+        Query q = new Query(where("ownerId").is(ownerId).and("contentHash").is(contentHash));
+        return mongo.exists(q, FileMetadataDocument.class, COL);
+    }
+
+    @Override
+    public long countByContentHash(String contentHash) {
+        Query q = new Query(where("contentHash").is(contentHash));
+        return mongo.count(q, FileMetadataDocument.class, COL);
+    }
+
+    @Override
+    public Map<String, Long> countByContentHashes(Collection<String> contentHashes) {
+        // served by ix_content_hash; one group per hash instead of one count per hash
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(where("contentHash").in(contentHashes)),
+                Aggregation.group("contentHash").count().as("count")
+        );
+        Map<String, Long> counts = new HashMap<>();
+        for (Document d : mongo.aggregate(agg, COL, Document.class)) {
+            counts.put(d.getString("_id"), ((Number) d.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public boolean existsByContentHash(String contentHash) {
+        Query q = new Query(where("contentHash").is(contentHash));
+        return mongo.exists(q, FileMetadataDocument.class, COL);
+    }
+
+    @Override
+    public FileMetadata findReadableByContentHash(String ownerId, String contentHash) {
+        Query q = new Query(where("contentHash").is(contentHash)
+                .orOperator(where("ownerId").is(ownerId), where("visibility").is("PUBLIC")));
+        FileMetadataDocument d = mongo.findOne(q, FileMetadataDocument.class, COL);
+        return d == null ? null : map(d);
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+
+    private static void applyFilters(Query q, ListQuery query) {
+        if (hasText(query.q())) {
+            Pattern rx = Pattern.compile(Pattern.quote(query.q()), Pattern.CASE_INSENSITIVE);
+            q.addCriteria(where("filename").regex(rx));
+        }
+        if (hasText(query.tag())) {
+            Pattern p = Pattern.compile("^" + Pattern.quote(query.tag()) + "$", Pattern.CASE_INSENSITIVE);
+            q.addCriteria(where("tags").elemMatch(where("$regex").is(p)));
+        }
+    }
+
+    private static void applyPagingAndSorting(Query q, ListQuery query) {
+        // null-safe paging
+        Integer pObj = query.page();
+        Integer sObj = query.size();
+
+        int page = (pObj == null || pObj < 0) ? 0 : pObj;
+        int size = (sObj == null || sObj <= 0) ? 20 : Math.min(sObj, 100);
+
+        q.skip((long) page * size).limit(size);
+
+        // null-safe sort
+        var by  = (query.sortBy()  != null) ? query.sortBy()  : ListQuery.SortBy.CREATED_AT;
+        var dir = (query.sortDir() != null && query.sortDir() == ListQuery.SortDir.ASC)
+                ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        String field = switch (by) {
+            case UPDATED_AT   -> "updatedAt";
+            case FILENAME     -> "filename";
+            case SIZE         -> "size";
+            case CONTENT_TYPE -> "contentType";
+            case CREATED_AT   -> "createdAt";
+            case TAG          -> "tags";
+            default           -> "createdAt";
+        };
+
+        q.with(Sort.by(dir, field));
+    }
+}
@@ -1,36 +1,204 @@
-package com.digitalarkcorp.filestorage.infrastructure.mongo;
-
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import com.mongodb.client.model.Indexes;
-import com.mongodb.client.model.IndexOptions;
-
-@Configuration
-@RequiredArgsConstructor
-public class MongoIndexes {
-
-    private final MongoTemplate template;
-
-    @PostConstruct
-    public void ensure() {
-        var col = template.getCollection("files");
-
-        col.createIndex(
-                Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.ascending("filename")),
-                new IndexOptions().name("uniq_owner_filename").unique(true)
-        );
-        col.createIndex(
-                Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.ascending("contentHash")),
-                new IndexOptions().name("uniq_owner_contenthash").unique(true)
-        );
-        col.createIndex(Indexes.ascending("visibility"), new IndexOptions().name("ix_visibility"));
-        col.createIndex(Indexes.ascending("tags"),       new IndexOptions().name("ix_tags"));
-        col.createIndex(Indexes.ascending("filename"),   new IndexOptions().name("ix_filename"));
-        col.createIndex(Indexes.ascending("contentHash"),new IndexOptions().name("ix_content_hash"));
-        col.createIndex(Indexes.ascending("linkId"),     new IndexOptions().name("ix_link"));
-        col.createIndex(Indexes.ascending("createdAt"),  new IndexOptions().name("ix_created_at"));
-        col.createIndex(Indexes.ascending("updatedAt"),  new IndexOptions().name("ix_updated_at"));
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Sorts;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexes {
+
+    /** Filters the list endpoints apply before sorting: owner listing and public listing. */
+    private static final List<String> LIST_FILTERS = List.of("ownerId", "visibility");
+
+    /** Indexes superseded by the compound list and search indexes below. */
+    private static final List<String> REDUNDANT = List.of(
+            "ix_visibility", "ix_filename", "ix_created_at", "ix_updated_at", "ix_tags",
+            "ix_ownerid_tagsnorm", "ix_visibility_tagsnorm");
+
+    /** Sort the tag index carries: the listing default, the one tag pages are mostly read in. */
+    private static final String TAG_SORT_FIELD = MongoFileMetadataRepository.sortField(ListQuery.SortBy.CREATED_AT);
+
+    static final String UNIQ_OWNER_FILENAME = "uniq_owner_filename";
+    static final String UNIQ_OWNER_CONTENTHASH = "uniq_owner_contenthash";
+
+    private static final String SESSION_TTL = "ttl_updated_at";
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final String PLAN_PROBE = "__plan_probe__";
+
+    private final MongoTemplate template;
+
+    @Value("${app.mongo.verify-query-plans:false}")
+    private boolean verifyQueryPlans;
+
+    @Value("${app.uploads.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @PostConstruct
+    public void ensure() {
+        var col = template.getCollection("files");
+
+        col.createIndex(
+                Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.ascending("filename")),
+                new IndexOptions().name(UNIQ_OWNER_FILENAME).unique(true)
+        );
+        col.createIndex(
+                Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.ascending("contentHash")),
+                new IndexOptions().name(UNIQ_OWNER_CONTENTHASH).unique(true)
+        );
+        col.createIndex(Indexes.ascending("contentHash"),new IndexOptions().name("ix_content_hash"));
+        col.createIndex(Indexes.ascending("linkId"),     new IndexOptions().name("ix_link"));
+
+        // {filter, sortField, _id} for every list shape; one ascending index also serves the
+        // fully descending sort by walking it backwards
+        for (String filter : LIST_FILTERS) {
+            for (String sortField : sortFields()) {
+                col.createIndex(
+                        Indexes.ascending(filter, sortField, "_id"),
+                        new IndexOptions().name(listIndexName(filter, sortField))
+                );
+            }
+        }
+
+        // search: exact tag on the lowercase shadow, filename trigrams for "contains". Only the
+        // default sort of a tag is indexed; one index per tag and sort field would double the
+        // list indexes for a shape whose matches are already narrowed by the tag
+        for (String filter : LIST_FILTERS) {
+            col.createIndex(
+                    Indexes.ascending(filter, "tagsNorm", TAG_SORT_FIELD, "_id"),
+                    new IndexOptions().name(tagIndexName(filter))
+            );
+            col.createIndex(
+                    Indexes.ascending(filter, "filenameGrams"),
+                    new IndexOptions().name("ix_" + filter.toLowerCase() + "_filenamegrams")
+            );
+        }
+
+        // blob collection scans unreferenced records by age
+        template.getCollection(MongoBlobRepository.COL).createIndex(
+                Indexes.ascending("refs", "updatedAt"),
+                new IndexOptions().name("ix_refs_updated")
+        );
+
+        ensureSessionTtl();
+
+        dropRedundant(col);
+
+        if (verifyQueryPlans) {
+            verifyListPlans(col);
+        }
+    }
+
+    /** Idle upload sessions are removed by the server; their chunks are left to the upload sweep. */
+    private void ensureSessionTtl() {
+        long seconds = sessionTtl.toSeconds();
+        try {
+            template.getCollection(MongoUploadSessionRepository.COL).createIndex(
+                    Indexes.ascending("updatedAt"),
+                    new IndexOptions().name(SESSION_TTL).expireAfter(seconds, TimeUnit.SECONDS)
+            );
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != INDEX_OPTIONS_CONFLICT) throw e;
+            // the TTL was changed: update it in place instead of rebuilding the index
+            template.getDb().runCommand(new Document("collMod", MongoUploadSessionRepository.COL)
+                    .append("index", new Document("name", SESSION_TTL).append("expireAfterSeconds", seconds)));
+        }
+    }
+
+    /** Sort fields reachable from {@link ListQuery.SortBy}; TAG falls back to createdAt. */
+    static Set<String> sortFields() {
+        Set<String> fields = new LinkedHashSet<>();
+        for (ListQuery.SortBy sortBy : ListQuery.SortBy.values()) {
+            fields.add(MongoFileMetadataRepository.sortField(sortBy));
+        }
+        return fields;
+    }
+
+    private static String listIndexName(String filter, String sortField) {
+        return "ix_" + filter.toLowerCase() + "_" + sortField.toLowerCase();
+    }
+
+    private static String tagIndexName(String filter) {
+        return "ix_" + filter.toLowerCase() + "_tagsnorm_" + TAG_SORT_FIELD.toLowerCase();
+    }
+
+    private static void dropRedundant(MongoCollection<Document> col) {
+        Set<String> existing = new LinkedHashSet<>();
+        for (Document ix : col.listIndexes()) {
+            existing.add(ix.getString("name"));
+        }
+        for (String name : REDUNDANT) {
+            if (existing.contains(name)) {
+                col.dropIndex(name);
+            }
+        }
+    }
+
+    /**
+     * Explains every supported list shape in both directions and refuses to start when one
+     * would scan the collection, or sort in memory where an index is meant to give the order.
+     * Tag lists in a non-default order and filename searches may sort their matches in memory:
+     * the trigram index cannot give any order, and the tag index only gives {@code createdAt}.
+     */
+    private static void verifyListPlans(MongoCollection<Document> col) {
+        List<String> failures = new ArrayList<>();
+        for (String filter : LIST_FILTERS) {
+            for (String sortField : sortFields()) {
+                verify(col, failures, filter + " sorted by " + sortField,
+                        Filters.eq(filter, PLAN_PROBE), sortField, true);
+                verify(col, failures, filter + " tag sorted by " + sortField,
+                        Filters.and(Filters.eq(filter, PLAN_PROBE), Filters.eq("tagsNorm", PLAN_PROBE)),
+                        sortField, sortField.equals(TAG_SORT_FIELD));
+                verify(col, failures, filter + " search sorted by " + sortField,
+                        Filters.and(Filters.eq(filter, PLAN_PROBE),
+                                Filters.all("filenameGrams", List.of("pro", "rob", "obe"))),
+                        sortField, false);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("List queries without a usable index: " + failures);
+        }
+    }
+
+    private static void verify(MongoCollection<Document> col, List<String> failures, String shape,
+                               Bson filter, String sortField, boolean indexedOrder) {
+        for (boolean asc : new boolean[]{true, false}) {
+            Bson sort = asc ? Sorts.ascending(sortField, "_id") : Sorts.descending(sortField, "_id");
+            Document plan = col.find(filter).sort(sort).limit(20).explain();
+            Object winning = ((Document) plan.get("queryPlanner")).get("winningPlan");
+            Set<String> stages = new LinkedHashSet<>();
+            collectStages(winning, stages);
+            if (stages.contains("COLLSCAN") || (indexedOrder && stages.contains("SORT"))) {
+                failures.add(shape + (asc ? " ASC" : " DESC") + " -> " + stages);
+            }
+        }
+    }
+
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document d) {
+            Object stage = d.get("stage");
+            if (stage instanceof String s) stages.add(s);
+            for (Object child : d.values()) collectStages(child, stages);
+        } else if (node instanceof List<?> list) {
+            for (Object child : list) collectStages(child, stages);
+        }
+    }
+}
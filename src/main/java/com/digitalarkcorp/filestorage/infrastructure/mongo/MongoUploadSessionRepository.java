@@ -0,0 +1,83 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.UploadSessionRepository;
+import com.digitalarkcorp.filestorage.infrastructure.mongo.model.UploadSessionDocument;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Repository
+public class MongoUploadSessionRepository implements UploadSessionRepository {
+
+    static final String COL = "upload_sessions";
+
+    private final MongoTemplate mongo;
+
+    public MongoUploadSessionRepository(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public UploadSession save(UploadSession s) {
+        UploadSessionDocument d = new UploadSessionDocument(
+                s.id(),
+                s.ownerId(),
+                s.filename(),
+                s.visibility().name(),
+                s.tags(),
+                s.contentType(),
+                s.length(),
+                s.offset(),
+                s.chunkKeys(),
+                s.createdAt(),
+                s.updatedAt()
+        );
+        return map(mongo.insert(d, COL));
+    }
+
+    @Override
+    public UploadSession findById(String id) {
+        UploadSessionDocument d = mongo.findById(id, UploadSessionDocument.class, COL);
+        return d == null ? null : map(d);
+    }
+
+    @Override
+    public boolean appendChunk(String id, int expectedChunks, String chunkKey, long chunkLength, Instant now) {
+        // the size guard makes the append a compare-and-set on the chunk count
+        Query q = new Query(where("_id").is(id).and("chunkKeys").size(expectedChunks));
+        Update u = new Update()
+                .push("chunkKeys", chunkKey)
+                .inc("offset", chunkLength)
+                .set("updatedAt", now);
+        return mongo.updateFirst(q, u, UploadSessionDocument.class, COL).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void delete(String id) {
+        mongo.remove(new Query(where("_id").is(id)), UploadSessionDocument.class, COL);
+    }
+
+    private UploadSession map(UploadSessionDocument d) {
+        return new UploadSession(
+                d.id(),
+                d.ownerId(),
+                d.filename(),
+                Visibility.valueOf(d.visibility()),
+                d.tags(),
+                d.contentType(),
+                d.length(),
+                d.offset(),
+                d.chunkKeys() != null ? d.chunkKeys() : List.of(),
+                d.createdAt(),
+                d.updatedAt()
+        );
+    }
+}
@@ -0,0 +1,69 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.application.util.FileQueries;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the lowercase search fields on documents written before they existed. Finding them
+ * scans the whole files collection, so it only runs when {@code app.search.backfill} is set:
+ * once, when upgrading from a version that did not write them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchFieldsBackfill implements ApplicationRunner {
+
+    private static final int BATCH = 500;
+
+    private final MongoTemplate template;
+
+    @Value("${app.search.backfill:false}")
+    private boolean backfill;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!backfill) {
+            return;
+        }
+        var col = template.getCollection("files");
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        long updated = 0;
+
+        for (Document d : col.find(Filters.exists("filenameNorm", false))) {
+            String norm = FileQueries.searchKey(d.getString("filename"));
+            List<String> tags = d.getList("tags", String.class);
+            batch.add(new UpdateOneModel<>(
+                    Filters.eq("_id", d.get("_id")),
+                    Updates.combine(
+                            Updates.set("filenameNorm", norm),
+                            Updates.set("filenameGrams", FileQueries.trigrams(norm)),
+                            Updates.set("tagsNorm", FileQueries.searchKeys(tags))
+                    )
+            ));
+            if (batch.size() == BATCH) {
+                updated += col.bulkWrite(batch).getModifiedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += col.bulkWrite(batch).getModifiedCount();
+        }
+        if (updated > 0) {
+            log.info("Backfilled search fields on {} file documents", updated);
+        }
+    }
+}
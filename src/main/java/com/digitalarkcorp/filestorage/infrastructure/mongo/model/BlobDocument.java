@@ -0,0 +1,16 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo.model;
+
+import java.time.Instant;
+
+/** {@code collectingAt} is set while the collector deletes the object; references wait until it is gone. */
+public record BlobDocument(
+        String id,
+        long size,
+        long refs,
+        boolean stored,
+        String encoding,
+        Long storedSize,
+        Instant createdAt,
+        Instant updatedAt,
+        Instant collectingAt
+) {}
@@ -1,19 +1,26 @@
-package com.digitalarkcorp.filestorage.infrastructure.mongo.model;
-
-import java.time.Instant;
-import java.util.List;
-
-public record FileMetadataDocument(
-        String id,
-        String ownerId,
-        String filename,
-        String visibility,
-        List<String> tags,
-        long size,
-        String contentType,
-        String contentHash,
-        String linkId,
-        String status,
-        Instant createdAt,
-        Instant updatedAt
-) {}
+package com.digitalarkcorp.filestorage.infrastructure.mongo.model;
+
+import java.time.Instant;
+import java.util.List;
+
+public record FileMetadataDocument(
+        String id,
+        String ownerId,
+        String filename,
+        String visibility,
+        List<String> tags,
+        long size,
+        String contentType,
+        String contentHash,
+        String linkId,
+        String status,
+        Instant createdAt,
+        Instant updatedAt,
+        // null / absent for content stored verbatim, as every file written before compression is
+        String contentEncoding,
+        Long storedSize,
+        // lowercase shadows of tags/filename for exact and n-gram indexed search
+        List<String> tagsNorm,
+        String filenameNorm,
+        List<String> filenameGrams
+) {}
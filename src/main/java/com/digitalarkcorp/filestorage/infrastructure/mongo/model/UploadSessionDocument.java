@@ -0,0 +1,18 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo.model;
+
+import java.time.Instant;
+import java.util.List;
+
+public record UploadSessionDocument(
+        String id,
+        String ownerId,
+        String filename,
+        String visibility,
+        List<String> tags,
+        String contentType,
+        long length,
+        long offset,
+        List<String> chunkKeys,
+        Instant createdAt,
+        Instant updatedAt
+) {}
@@ -0,0 +1,158 @@
+package com.digitalarkcorp.filestorage.infrastructure.s3;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads one object as S3 multipart parts with at most {@code concurrency} parts in flight.
+ * The source is read sequentially into part-sized buffers, so one upload holds at most
+ * {@code concurrency * partSize}; all uploads together hold at most {@code budget}, a part
+ * waiting for buffer space until another upload's part is sent. Any failure aborts the
+ * multipart upload.
+ */
+@Slf4j
+public class S3MultipartUploader {
+
+    /** S3 rejects non-final parts smaller than this. */
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final Client client;
+    private final int partSize;
+    private final int concurrency;
+    private final Semaphore budget;
+
+    public S3MultipartUploader(MinioAsyncClient client, long partSize, int concurrency, long budget) {
+        this.client = new Client(client);
+        this.partSize = (int) Math.min(Math.max(partSize, MIN_PART_SIZE), Integer.MAX_VALUE - 8);
+        this.concurrency = Math.max(concurrency, 1);
+        // never below one part, or no upload could make progress
+        this.budget = new Semaphore((int) Math.max(this.partSize, Math.min(budget, Integer.MAX_VALUE)));
+    }
+
+    public void upload(String bucket, String objectKey, InputStream data, String contentType) {
+        String uploadId;
+        try {
+            Multimap<String, String> headers = HashMultimap.create();
+            if (contentType != null) headers.put("Content-Type", contentType);
+            uploadId = client.create(bucket, objectKey, headers).join().result().uploadId();
+        } catch (Exception e) {
+            throw new RuntimeException(unwrap(e));
+        }
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        try {
+            int partNumber = 0;
+            while (true) {
+                inFlight.acquire();
+                try {
+                    budget.acquire(partSize);
+                } catch (InterruptedException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                byte[] buf;
+                try {
+                    buf = data.readNBytes(partSize);
+                } catch (Exception e) {
+                    releasePart(inFlight);
+                    throw e;
+                }
+                if (buf.length == 0 && partNumber > 0) {
+                    releasePart(inFlight);
+                    break;
+                }
+                int number = ++partNumber;
+                CompletableFuture<Part> part;
+                try {
+                    part = client.uploadPart(bucket, objectKey, buf, uploadId, number)
+                            .thenApply(r -> new Part(number, r.etag()));
+                } catch (Exception e) {
+                    releasePart(inFlight);
+                    throw e;
+                }
+                part.whenComplete((r, e) -> releasePart(inFlight));
+                parts.add(part);
+
+                failFast(parts);
+                if (buf.length < partSize) break;
+            }
+
+            Part[] completed = new Part[parts.size()];
+            for (int i = 0; i < completed.length; i++) {
+                completed[i] = parts.get(i).join();
+            }
+            client.complete(bucket, objectKey, uploadId, completed).join();
+        } catch (Exception e) {
+            abort(bucket, objectKey, uploadId, parts);
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw new RuntimeException(unwrap(e));
+        }
+    }
+
+    private void releasePart(Semaphore inFlight) {
+        budget.release(partSize);
+        inFlight.release();
+    }
+
+    private static void failFast(List<CompletableFuture<Part>> parts) {
+        for (CompletableFuture<Part> p : parts) {
+            if (p.isCompletedExceptionally()) p.join(); // rethrows the part's failure
+        }
+    }
+
+    private void abort(String bucket, String objectKey, String uploadId, List<CompletableFuture<Part>> parts) {
+        // let in-flight parts settle first, or they could land after the abort
+        try {
+            CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        } catch (Exception ignored) {
+        }
+        try {
+            client.abort(bucket, objectKey, uploadId).join();
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload {} for {}", uploadId, objectKey, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+    }
+
+    /** MinioAsyncClient keeps the multipart primitives protected; this opens them up. */
+    private static final class Client extends MinioAsyncClient {
+
+        Client(MinioAsyncClient client) {
+            super(client);
+        }
+
+        CompletableFuture<io.minio.CreateMultipartUploadResponse> create(
+                String bucket, String objectKey, Multimap<String, String> headers) throws Exception {
+            return createMultipartUploadAsync(bucket, null, objectKey, headers, null);
+        }
+
+        CompletableFuture<io.minio.UploadPartResponse> uploadPart(
+                String bucket, String objectKey, byte[] data, String uploadId, int partNumber) throws Exception {
+            return uploadPartAsync(bucket, null, objectKey, data, data.length, uploadId, partNumber, null, null);
+        }
+
+        CompletableFuture<io.minio.ObjectWriteResponse> complete(
+                String bucket, String objectKey, String uploadId, Part[] parts) throws Exception {
+            return completeMultipartUploadAsync(bucket, null, objectKey, uploadId, parts, null, null);
+        }
+
+        CompletableFuture<io.minio.AbortMultipartUploadResponse> abort(
+                String bucket, String objectKey, String uploadId) throws Exception {
+            return abortMultipartUploadAsync(bucket, null, objectKey, uploadId, null, null);
+        }
+    }
+}
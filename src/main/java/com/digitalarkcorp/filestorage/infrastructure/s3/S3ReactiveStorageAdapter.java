@@ -0,0 +1,52 @@
+package com.digitalarkcorp.filestorage.infrastructure.s3;
+
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.config.StorageProperties;
+import io.minio.GetObjectArgs;
+import io.minio.MinioAsyncClient;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Ranged GETs through the async MinIO client. The request and response headers never hold a
+ * thread; the body is an OkHttp stream, read one buffer per downstream request on the
+ * bounded-elastic pool, so a connection to a slow client holds no thread between buffers.
+ */
+public class S3ReactiveStorageAdapter implements ReactiveStoragePort {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MinioAsyncClient client;
+    private final StorageProperties props;
+    private final DataBufferFactory bufferFactory;
+
+    public S3ReactiveStorageAdapter(MinioAsyncClient client, StorageProperties props, DataBufferFactory bufferFactory) {
+        this.client = client;
+        this.props = props;
+        this.bufferFactory = bufferFactory;
+    }
+
+    @Override
+    public Flux<DataBuffer> get(String objectKey, long offset, long length) {
+        return Mono.fromFuture(() -> {
+                    try {
+                        return client.getObject(
+                                GetObjectArgs.builder()
+                                        .bucket(props.getBucket())
+                                        .object(objectKey)
+                                        .offset(offset)
+                                        .length(length)
+                                        .build());
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .flatMapMany(response -> DataBufferUtils
+                        .readInputStream(() -> response, bufferFactory, BUFFER_SIZE)
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+}
@@ -1,72 +1,183 @@
-package com.digitalarkcorp.filestorage.infrastructure.s3;
-
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-import com.digitalarkcorp.filestorage.infrastructure.config.StorageProperties;
-import io.minio.GetObjectArgs;
-import io.minio.GetObjectResponse;
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
-import io.minio.RemoveObjectArgs;
-import io.minio.StatObjectArgs;
-import io.minio.StatObjectResponse;
-import lombok.RequiredArgsConstructor;
-
-import java.io.InputStream;
-
-@RequiredArgsConstructor
-public class S3StorageAdapter implements StoragePort {
-
-    private final MinioClient client;
-    private final StorageProperties props;
-
-    @Override
-    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
-        try {
-            client.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(props.getBucket())
-                            .object(objectKey)
-                            .stream(data, contentLength, -1)
-                            .contentType(contentType)
-                            .build()
-            );
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    @Override
-    public Resource get(String objectKey) {
-        try {
-            StatObjectResponse stat = client.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(props.getBucket())
-                            .object(objectKey)
-                            .build()
-            );
-            GetObjectResponse in = client.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(props.getBucket())
-                            .object(objectKey)
-                            .build()
-            );
-            return new Resource(in, stat.size(), stat.contentType());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    @Override
-    public void delete(String objectKey) {
-        try {
-            client.removeObject(
-                    RemoveObjectArgs.builder()
-                            .bucket(props.getBucket())
-                            .object(objectKey)
-                            .build()
-            );
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-}
+package com.digitalarkcorp.filestorage.infrastructure.s3;
+
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.config.StorageProperties;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class S3StorageAdapter implements StoragePort {
+
+    private final MinioClient client;
+    private final StorageProperties props;
+    private final S3MultipartUploader multipart;
+
+    @Override
+    public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+        if (contentLength < 0 || contentLength >= props.getMultipartThreshold().toBytes()) {
+            multipart.upload(props.getBucket(), objectKey, data, contentType);
+            return;
+        }
+        try {
+            client.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(objectKey)
+                            .stream(data, contentLength, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Resource get(String objectKey) {
+        try {
+            // length and type come from the GET response headers: no separate stat round trip
+            GetObjectResponse in = client.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(objectKey)
+                            .build()
+            );
+            String length = in.headers().get("Content-Length");
+            return new Resource(in, length != null ? Long.parseLong(length) : -1, in.headers().get("Content-Type"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Resource get(String objectKey, long offset, long length) {
+        try {
+            GetObjectResponse in = client.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(objectKey)
+                            .offset(offset)
+                            .length(length)
+                            .build()
+            );
+            return new Resource(in, length, in.headers().get("Content-Type"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) {
+        try {
+            // compose instead of copy: a single-source compose is a plain copy up to 5 GiB and
+            // switches to a server-side multipart copy beyond that
+            client.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(targetKey)
+                            .sources(List.of(ComposeSource.builder()
+                                    .bucket(props.getBucket())
+                                    .object(sourceKey)
+                                    .build()))
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        delete(sourceKey);
+    }
+
+    /**
+     * Server-side compose: the objects are joined by the backend as a multipart copy. S3 needs
+     * every source but the last to be at least 5 MiB; smaller chunks are streamed instead.
+     */
+    @Override
+    public void compose(List<String> sourceKeys, String targetKey) {
+        List<ComposeSource> sources = sourceKeys.stream()
+                .map(key -> ComposeSource.builder().bucket(props.getBucket()).object(key).build())
+                .toList();
+        try {
+            client.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(targetKey)
+                            .sources(sources)
+                            .build()
+            );
+        } catch (IllegalArgumentException e) {
+            // rejected before anything was copied: a source below the part minimum
+            StoragePort.super.compose(sourceKeys, targetKey);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<String> list(String prefix) {
+        List<String> keys = new ArrayList<>();
+        try {
+            for (Result<Item> r : client.listObjects(
+                    ListObjectsArgs.builder().bucket(props.getBucket()).prefix(prefix).recursive(true).build())) {
+                keys.add(r.get().objectName());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return keys;
+    }
+
+    @Override
+    public void delete(String objectKey) {
+        try {
+            client.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(props.getBucket())
+                            .object(objectKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Multi-object delete: the client sends up to 1000 keys per request. */
+    @Override
+    public List<String> delete(Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) return List.of();
+        List<DeleteObject> objects = objectKeys.stream().map(DeleteObject::new).toList();
+        Iterable<Result<DeleteError>> results = client.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(props.getBucket())
+                        .objects(objects)
+                        .build()
+        );
+        // the requests are only sent while the results are iterated
+        List<String> failed = new ArrayList<>();
+        try {
+            for (Result<DeleteError> r : results) {
+                failed.add(r.get().objectName());
+            }
+        } catch (Exception e) {
+            // a failed request leaves its whole batch unknown: report every key
+            return List.copyOf(objectKeys);
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,132 @@
+package com.digitalarkcorp.filestorage;
+
+import com.digitalarkcorp.filestorage.application.BlobCollector;
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobCollectorTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Duration GRACE = Duration.ofHours(1);
+
+    private FakeMetadataRepository repo;
+    private FakeBlobRepository blobs;
+    private FakeStoragePort storage;
+    private DefaultFileService service;
+
+    @BeforeEach
+    void setup() {
+        repo = new FakeMetadataRepository();
+        blobs = new FakeBlobRepository();
+        storage = new FakeStoragePort();
+        service = new DefaultFileService(repo, blobs, storage, Clock.fixed(T0, ZoneOffset.UTC),
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+    }
+
+    @Test
+    void unreferencedBlob_isDeletedOnlyAfterTheGracePeriod() {
+        FileMetadata m = upload("u1", "a.txt", "GONE");
+        service.delete("u1", m.id());
+
+        assertEquals(0, collectorAt(T0.plus(Duration.ofMinutes(30))).collect(10));
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+
+        assertEquals(1, collectorAt(T0.plus(Duration.ofHours(2))).collect(10));
+        assertEquals(Set.of(), storage.keys());
+        assertNull(blobs.get(m.contentHash()));
+    }
+
+    @Test
+    void referencedBlob_isKept() {
+        FileMetadata m = upload("u1", "a.txt", "KEPT");
+        upload("u2", "b.txt", "KEPT");
+        service.delete("u1", m.id());
+
+        assertEquals(0, collectorAt(T0.plus(Duration.ofHours(2))).collect(10));
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+        assertEquals(1, blobs.get(m.contentHash()).refs());
+    }
+
+    @Test
+    void fileStoredBeforeCounting_restoresTheCount() {
+        FileMetadata m = upload("u1", "a.txt", "LEGACY");
+        // a second file that never took a reference, like one written before blobs were counted
+        repo.save(new FileMetadata(null, "u2", "old.txt", Visibility.PRIVATE, List.of(), m.size(),
+                m.contentType(), m.contentHash(), "legacy-link", FileMetadata.FileStatus.READY, T0, T0));
+        service.delete("u1", m.id());
+
+        assertEquals(0, collectorAt(T0.plus(Duration.ofHours(2))).collect(10));
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+        assertEquals(1, blobs.get(m.contentHash()).refs());
+    }
+
+    @Test
+    void reuploadAfterCollection_storesTheObjectAgain() {
+        FileMetadata m = upload("u1", "a.txt", "AGAIN");
+        service.delete("u1", m.id());
+        collectorAt(T0.plus(Duration.ofHours(2))).collect(10);
+
+        FileMetadata again = upload("u2", "a.txt", "AGAIN");
+
+        assertEquals(Set.of(again.contentHash()), storage.keys());
+        assertTrue(blobs.get(again.contentHash()).stored());
+    }
+
+    @Test
+    void failedRelease_isCountedAndLaterReconciled() {
+        FakeBlobRepository failing = new FakeBlobRepository() {
+            @Override
+            public Set<String> release(Map<String, Long> counts, Instant now) {
+                throw new IllegalStateException("store unavailable");
+            }
+        };
+        blobs = failing;
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        service = new DefaultFileService(repo, blobs, storage, Clock.fixed(T0, ZoneOffset.UTC),
+                meters, UploadOptions.DEFAULTS);
+        FileMetadata m = upload("u1", "a.txt", "STUCK");
+
+        service.delete("u1", List.of(m.id()));
+        assertEquals(1.0, meters.counter("blobs.release.failed").count());
+        assertEquals(1, blobs.get(m.contentHash()).refs());
+
+        // not before the grace period, which covers uploads between acquire and save
+        assertEquals(0, collectorAt(T0.plus(Duration.ofMinutes(30))).reconcile(10));
+        BlobCollector later = collectorAt(T0.plus(Duration.ofHours(2)));
+        assertEquals(1, later.reconcile(10));
+        assertEquals(0, blobs.get(m.contentHash()).refs());
+
+        assertEquals(1, collectorAt(T0.plus(Duration.ofHours(4))).collect(10));
+        assertEquals(Set.of(), storage.keys());
+    }
+
+    private BlobCollector collectorAt(Instant now) {
+        return new BlobCollector(blobs, repo, storage, Clock.fixed(now, ZoneOffset.UTC), GRACE);
+    }
+
+    private FileMetadata upload(String owner, String name, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return service.upload(owner, name, Visibility.PRIVATE, List.of(), "text/plain",
+                bytes.length, new ByteArrayInputStream(bytes));
+    }
+}
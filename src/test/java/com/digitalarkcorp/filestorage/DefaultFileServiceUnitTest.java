@@ -1,100 +1,484 @@
-package com.digitalarkcorp.filestorage;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
-import com.digitalarkcorp.filestorage.application.DefaultFileService;
-import com.digitalarkcorp.filestorage.application.FileService;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
-import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
-import java.time.Clock;
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.util.List;
-
-import static org.junit.jupiter.api.Assertions.*;
-
-class DefaultFileServiceUnitTest {
-
-    private FakeMetadataRepository repo;
-    private FakeStoragePort storage;
-    private FileService service;
-
-    @BeforeEach
-    void setup() {
-        repo = new FakeMetadataRepository();
-        storage = new FakeStoragePort();
-        Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
-        service = new DefaultFileService(repo, storage, clock);
-    }
-
-    @Test
-    void uploadPublic_listByTag() {
-        FileMetadata m = service.upload(
-                "u1", "a.txt", Visibility.PUBLIC, List.of("Demo"),
-                "text/plain", len("A"), in("A")
-        );
-        assertNotNull(m.id());
-        List<FileMetadata> pub = service.listPublic(
-                new ListQuery("demo", null, ListQuery.SortBy.FILENAME, ListQuery.SortDir.ASC, 0, 10)
-        );
-        assertEquals(1, pub.size());
-        assertEquals("a.txt", pub.get(0).filename());
-    }
-
-    @Test
-    void rename_ownerOk_otherForbidden() {
-        FileMetadata m = service.upload(
-                "u1", "a.txt", Visibility.PUBLIC, List.of("Demo"),
-                "text/plain", len("A"), in("A")
-        );
-        FileMetadata r = service.rename("u1", m.id(), new RenameRequest("a-renamed.txt"));
-        assertEquals("a-renamed.txt", r.filename());
-        assertThrows(RuntimeException.class, () ->
-                service.rename("uX", m.id(), new RenameRequest("should-fail.txt"))
-        );
-    }
-
-    @Test
-    void upload_conflict_sameOwner_sameName() {
-        service.upload("u1", "dup.txt", Visibility.PRIVATE, List.of("x"),
-                "text/plain", len("A"), in("A"));
-        assertThrows(RuntimeException.class, () ->
-                service.upload("u1", "dup.txt", Visibility.PRIVATE, List.of("x"),
-                        "text/plain", len("B"), in("B"))
-        );
-    }
-
-    @Test
-    void upload_conflict_sameOwner_sameContent() {
-        service.upload("u1", "x1.txt", Visibility.PRIVATE, List.of("x"),
-                "text/plain", len("CONTENT"), in("CONTENT"));
-        assertThrows(RuntimeException.class, () ->
-                service.upload("u1", "x2.txt", Visibility.PRIVATE, List.of("x"),
-                        "text/plain", len("CONTENT"), in("CONTENT"))
-        );
-    }
-
-    @Test
-    void upload_sameContent_diffOwner_ok() {
-        service.upload("u1", "same.txt", Visibility.PRIVATE, List.of("x"),
-                "text/plain", len("SAME"), in("SAME"));
-        FileMetadata m2 = service.upload("other", "same.txt", Visibility.PRIVATE, null,
-                "text/plain", len("SAME"), in("SAME"));
-        assertEquals("other", m2.ownerId());
-    }
-
-    private static ByteArrayInputStream in(String s) {
-        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
-    }
-
-    private static long len(String s) {
-        return s.getBytes(StandardCharsets.UTF_8).length;
-    }
-}
+package com.digitalarkcorp.filestorage;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.dto.RenameRequest;
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.api.errors.NotFoundException;
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.DeleteResult;
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadItem;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.application.UploadResult;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultFileServiceUnitTest {
+
+    private FakeMetadataRepository repo;
+    private FakeBlobRepository blobs;
+    private FakeStoragePort storage;
+    private FileService service;
+
+    @BeforeEach
+    void setup() {
+        repo = new FakeMetadataRepository();
+        blobs = new FakeBlobRepository();
+        storage = new FakeStoragePort();
+        Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+        service = new DefaultFileService(repo, blobs, storage, clock,
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+    }
+
+    @Test
+    void uploadPublic_listByTag() {
+        FileMetadata m = service.upload(
+                "u1", "a.txt", Visibility.PUBLIC, List.of("Demo"),
+                "text/plain", len("A"), in("A")
+        );
+        assertNotNull(m.id());
+        List<FileMetadata> pub = service.listPublic(
+                new ListQuery("demo", null, ListQuery.SortBy.FILENAME, ListQuery.SortDir.ASC, 0, 10)
+        );
+        assertEquals(1, pub.size());
+        assertEquals("a.txt", pub.get(0).filename());
+    }
+
+    @Test
+    void rename_ownerOk_otherForbidden() {
+        FileMetadata m = service.upload(
+                "u1", "a.txt", Visibility.PUBLIC, List.of("Demo"),
+                "text/plain", len("A"), in("A")
+        );
+        FileMetadata r = service.rename("u1", m.id(), new RenameRequest("a-renamed.txt"));
+        assertEquals("a-renamed.txt", r.filename());
+        assertThrows(RuntimeException.class, () ->
+                service.rename("uX", m.id(), new RenameRequest("should-fail.txt"))
+        );
+    }
+
+    @Test
+    void upload_conflict_sameOwner_sameName() {
+        service.upload("u1", "dup.txt", Visibility.PRIVATE, List.of("x"),
+                "text/plain", len("A"), in("A"));
+        assertThrows(RuntimeException.class, () ->
+                service.upload("u1", "dup.txt", Visibility.PRIVATE, List.of("x"),
+                        "text/plain", len("B"), in("B"))
+        );
+    }
+
+    @Test
+    void upload_conflict_sameOwner_sameContent() {
+        service.upload("u1", "x1.txt", Visibility.PRIVATE, List.of("x"),
+                "text/plain", len("CONTENT"), in("CONTENT"));
+        assertThrows(RuntimeException.class, () ->
+                service.upload("u1", "x2.txt", Visibility.PRIVATE, List.of("x"),
+                        "text/plain", len("CONTENT"), in("CONTENT"))
+        );
+    }
+
+    @Test
+    void upload_sameContent_diffOwner_ok() {
+        service.upload("u1", "same.txt", Visibility.PRIVATE, List.of("x"),
+                "text/plain", len("SAME"), in("SAME"));
+        FileMetadata m2 = service.upload("other", "same.txt", Visibility.PRIVATE, null,
+                "text/plain", len("SAME"), in("SAME"));
+        assertEquals("other", m2.ownerId());
+    }
+
+    @Test
+    void upload_contentStoredByAnotherOwner_isNotSentAgain() {
+        List<String> puts = new ArrayList<>();
+        FakeStoragePort counting = new FakeStoragePort() {
+            @Override
+            public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+                puts.add(objectKey);
+                super.put(objectKey, data, contentLength, contentType);
+            }
+        };
+        FileService svc = new DefaultFileService(repo, blobs, counting, Clock.systemUTC(),
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+
+        FileMetadata first = svc.upload("u1", "setup.exe", Visibility.PUBLIC, null,
+                "application/octet-stream", len("INSTALLER"), in("INSTALLER"));
+        FileMetadata second = svc.upload("u2", "setup.exe", Visibility.PUBLIC, null,
+                "application/octet-stream", len("INSTALLER"), in("INSTALLER"));
+
+        assertEquals(first.contentHash(), second.contentHash());
+        assertEquals(List.of(first.contentHash()), puts);
+        assertEquals(Set.of(first.contentHash()), counting.keys());
+    }
+
+    @Test
+    void uploadByHash_publicContent_createsRecordWithoutBytes() {
+        FileMetadata pub = service.upload("u1", "setup.exe", Visibility.PUBLIC, null,
+                "application/x-msdownload", len("INSTALLER"), in("INSTALLER"));
+
+        FileMetadata m = service.uploadByHash("u2", "my-setup.exe", Visibility.PRIVATE, List.of("tools"),
+                null, pub.contentHash().toUpperCase(), pub.size());
+
+        assertEquals("u2", m.ownerId());
+        assertEquals(pub.contentHash(), m.contentHash());
+        assertEquals("application/x-msdownload", m.contentType());
+        assertEquals(Set.of(pub.contentHash()), storage.keys());
+    }
+
+    @Test
+    void uploadByHash_otherOwnersPrivateContent_orWrongSize_isNotFound() {
+        FileMetadata priv = service.upload("u1", "secret.txt", Visibility.PRIVATE, null,
+                "text/plain", len("SECRET"), in("SECRET"));
+        FileMetadata pub = service.upload("u1", "open.txt", Visibility.PUBLIC, null,
+                "text/plain", len("OPEN"), in("OPEN"));
+
+        assertThrows(NotFoundException.class, () -> service.uploadByHash("u2", "s.txt", Visibility.PRIVATE, null,
+                null, priv.contentHash(), priv.size()));
+        assertThrows(NotFoundException.class, () -> service.uploadByHash("u2", "o.txt", Visibility.PRIVATE, null,
+                null, pub.contentHash(), pub.size() + 1));
+    }
+
+    @Test
+    void upload_abovePrehashLimit_dropsProvisionalWhenBlobExists() {
+        FileService svc = service(UploadOptions.DEFAULTS.withPrehashLimit(4));
+
+        FileMetadata first = svc.upload("u1", "big.bin", Visibility.PRIVATE, null,
+                "application/octet-stream", len("LARGER THAN FOUR"), in("LARGER THAN FOUR"));
+        svc.upload("u2", "big.bin", Visibility.PRIVATE, null,
+                "application/octet-stream", len("LARGER THAN FOUR"), in("LARGER THAN FOUR"));
+
+        assertEquals(Set.of(first.contentHash()), storage.keys());
+        assertEquals(2, repo.countByContentHash(first.contentHash()));
+    }
+
+    @Test
+    void upload_prehashBudgetExhausted_streamsThroughProvisional() {
+        List<String> puts = new ArrayList<>();
+        FakeStoragePort counting = new FakeStoragePort() {
+            @Override
+            public void put(String objectKey, InputStream data, long contentLength, String contentType) {
+                puts.add(objectKey);
+                super.put(objectKey, data, contentLength, contentType);
+            }
+        };
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        FileService svc = new DefaultFileService(repo, blobs, counting, Clock.systemUTC(),
+                meters, UploadOptions.DEFAULTS.withPrehashBudget(0));
+
+        FileMetadata saved = svc.upload("u1", "small.bin", Visibility.PRIVATE, null,
+                "application/octet-stream", len("SMALL"), in("SMALL"));
+
+        assertEquals(1, puts.size());
+        assertTrue(puts.get(0).startsWith("tmp/"));
+        assertEquals(Set.of(saved.contentHash()), counting.keys());
+        assertEquals(1.0, meters.counter("upload.prehash.exhausted").count());
+    }
+
+    @Test
+    void upload_bodyLongerThanDeclared_isRejected_andNothingIsStored() {
+        assertThrows(IllegalArgumentException.class, () -> service.upload("u1", "short.txt",
+                Visibility.PRIVATE, null, "text/plain", len("HEAD"), in("HEAD AND TAIL")));
+
+        assertEquals(Set.of(), storage.keys());
+        assertFalse(repo.existsByOwnerAndFilename("u1", "short.txt"));
+    }
+
+    @Test
+    void upload_storesUnderContentHash_andDiscardsProvisionalOnConflict() {
+        FileMetadata m = service.upload("u1", "h1.txt", Visibility.PRIVATE, null,
+                "text/plain", len("HASHED"), in("HASHED"));
+        assertEquals(len("HASHED"), m.size());
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+
+        assertThrows(RuntimeException.class, () ->
+                service.upload("u1", "h2.txt", Visibility.PRIVATE, null,
+                        "text/plain", len("HASHED"), in("HASHED"))
+        );
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+    }
+
+    @Test
+    void upload_nameConflict_releasesTheNewBlob() {
+        FileMetadata m = service.upload("u1", "n.txt", Visibility.PRIVATE, null,
+                "text/plain", len("FIRST"), in("FIRST"));
+
+        assertThrows(ConflictException.class, () ->
+                service.upload("u1", "n.txt", Visibility.PRIVATE, null,
+                        "text/plain", len("SECOND"), in("SECOND"))
+        );
+        assertEquals(1, blobs.get(m.contentHash()).refs());
+        String second = storage.keys().stream().filter(k -> !k.equals(m.contentHash())).findFirst().orElseThrow();
+        assertEquals(0, blobs.get(second).refs());
+    }
+
+    @Test
+    void delete_releasesTheBlobWithoutTouchingStorage() {
+        FileMetadata a = service.upload("u1", "a.txt", Visibility.PRIVATE, null,
+                "text/plain", len("SHARED"), in("SHARED"));
+        service.upload("u2", "a.txt", Visibility.PRIVATE, null,
+                "text/plain", len("SHARED"), in("SHARED"));
+        assertEquals(2, blobs.get(a.contentHash()).refs());
+
+        service.delete("u1", a.id());
+
+        assertEquals(1, blobs.get(a.contentHash()).refs());
+        assertEquals(Set.of(a.contentHash()), storage.keys());
+    }
+
+    @Test
+    void batchDelete_reportsEachId_andReleasesSharedBlobsOnce() {
+        FileMetadata a = service.upload("u1", "a.txt", Visibility.PRIVATE, null, "text/plain", len("ONE"), in("ONE"));
+        FileMetadata b = service.upload("u1", "b.txt", Visibility.PRIVATE, null, "text/plain", len("TWO"), in("TWO"));
+        FileMetadata other = service.upload("u2", "c.txt", Visibility.PRIVATE, null, "text/plain", len("ONE"), in("ONE"));
+
+        List<DeleteResult> results = service.delete("u1", List.of(a.id(), other.id(), "missing", b.id(), a.id()));
+
+        assertEquals(List.of(
+                new DeleteResult(a.id(), DeleteResult.Outcome.DELETED),
+                new DeleteResult(other.id(), DeleteResult.Outcome.FORBIDDEN),
+                new DeleteResult("missing", DeleteResult.Outcome.NOT_FOUND),
+                new DeleteResult(b.id(), DeleteResult.Outcome.DELETED)
+        ), results);
+        assertNull(repo.findById(a.id()));
+        assertNull(repo.findById(b.id()));
+        assertNotNull(repo.findById(other.id()));
+        assertEquals(1, blobs.get(a.contentHash()).refs());
+        assertEquals(0, blobs.get(b.contentHash()).refs());
+    }
+
+    @Test
+    void batchDelete_racingAnotherDelete_releasesEachBlobOnce() {
+        List<String> raced = new ArrayList<>();
+        FakeMetadataRepository racing = new FakeMetadataRepository() {
+            @Override
+            public synchronized boolean deleteByIdAndOwner(String id, String ownerId) {
+                if (!raced.isEmpty()) {
+                    // another request removes the first file just before this delete reaches it
+                    super.deleteByIdAndOwner(raced.remove(0), ownerId);
+                }
+                return super.deleteByIdAndOwner(id, ownerId);
+            }
+        };
+        FileService svc = new DefaultFileService(racing, blobs, storage, Clock.systemUTC(),
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        FileMetadata a = svc.upload("u1", "a.txt", Visibility.PRIVATE, null, "text/plain", len("ONE"), in("ONE"));
+        FileMetadata b = svc.upload("u1", "b.txt", Visibility.PRIVATE, null, "text/plain", len("TWO"), in("TWO"));
+        FileMetadata c = svc.upload("u1", "c.txt", Visibility.PRIVATE, null, "text/plain", len("SIX"), in("SIX"));
+        raced.add(a.id());
+
+        List<DeleteResult> results = svc.delete("u1", List.of(a.id(), b.id(), c.id()));
+
+        assertEquals(DeleteResult.Outcome.NOT_FOUND, results.get(0).outcome());
+        assertEquals(DeleteResult.Outcome.DELETED, results.get(1).outcome());
+        assertEquals(DeleteResult.Outcome.DELETED, results.get(2).outcome());
+        // the racing request owns a's reference; the batch releases only what it removed
+        assertEquals(1, blobs.get(a.contentHash()).refs());
+        assertEquals(0, blobs.get(b.contentHash()).refs());
+        assertEquals(0, blobs.get(c.contentHash()).refs());
+    }
+
+    @Test
+    void batchDelete_removesObjectsOfFilesStoredBeforeCounting() {
+        storage.put("legacyhash", in("OLD"), 3, "text/plain");
+        Instant t = Instant.parse("2025-01-01T00:00:00Z");
+        FileMetadata old = repo.save(new FileMetadata(null, "u1", "old.txt", Visibility.PRIVATE, List.of(), 3,
+                "text/plain", "legacyhash", "legacy-link", FileMetadata.FileStatus.READY, t, t));
+
+        service.delete("u1", List.of(old.id()));
+
+        assertEquals(Set.of(), storage.keys());
+    }
+
+    @Test
+    void uploadAll_reportsEachFile_andInsertsThemTogether() {
+        FileMetadata existing = service.upload("u1", "old.txt", Visibility.PRIVATE, null,
+                "text/plain", len("OLD"), in("OLD"));
+
+        List<UploadResult> results = service.uploadAll("u1", List.of(
+                item("a.txt", null, "ONE"),
+                item("a.txt", null, "TWO"),
+                item("copy.txt", null, "OLD"),
+                item("tags.txt", List.of("1", "2", "3", "4", "5", "6"), "SIX"),
+                new UploadItem("b.txt", Visibility.PRIVATE, null, "text/plain", -1, () -> in("THREE"))
+        ));
+
+        assertEquals(List.of(UploadResult.Outcome.CREATED, UploadResult.Outcome.CONFLICT,
+                        UploadResult.Outcome.CONFLICT, UploadResult.Outcome.INVALID, UploadResult.Outcome.CREATED),
+                results.stream().map(UploadResult::outcome).toList());
+        assertEquals("filename already exists for owner", results.get(1).error());
+        assertEquals("content already exists for owner", results.get(2).error());
+        assertEquals(4, results.get(4).index());
+        assertNotNull(repo.findById(results.get(4).file().id()));
+        assertEquals(1, repo.bulkInserts());
+
+        // rejected files give back the references they took
+        assertEquals(1, blobs.get(existing.contentHash()).refs());
+        assertEquals(1, blobs.get(results.get(0).file().contentHash()).refs());
+        String two = storage.keys().stream()
+                .filter(k -> !k.equals(existing.contentHash()))
+                .filter(k -> !k.equals(results.get(0).file().contentHash()))
+                .filter(k -> !k.equals(results.get(4).file().contentHash()))
+                .findFirst().orElseThrow();
+        assertEquals(0, blobs.get(two).refs());
+    }
+
+    @Test
+    void uploadAll_unreadableBody_failsOnlyThatFile() {
+        List<UploadResult> results = service.uploadAll("u1", List.of(
+                item("a.txt", null, "ONE"),
+                new UploadItem("broken.txt", Visibility.PRIVATE, null, "text/plain", 3, () -> {
+                    throw new UncheckedIOException(new IOException("part is gone"));
+                })
+        ));
+
+        assertEquals(UploadResult.Outcome.CREATED, results.get(0).outcome());
+        assertEquals(UploadResult.Outcome.FAILED, results.get(1).outcome());
+        assertEquals("broken.txt", results.get(1).filename());
+        assertEquals(1, repo.listByOwner("u1",
+                new ListQuery(null, null, ListQuery.SortBy.FILENAME, ListQuery.SortDir.ASC, 0, 10)).size());
+    }
+
+    @Test
+    void uploadAll_invalidMetadata_isReportedPerFile_withoutReadingTheBody() {
+        List<UploadResult> results = service.uploadAll("u1", List.of(
+                new UploadItem(" ", Visibility.PRIVATE, null, "text/plain", 3, () -> {
+                    throw new AssertionError("body of an invalid entry was opened");
+                }),
+                new UploadItem("x".repeat(256), Visibility.PRIVATE, null, "text/plain", 3, () -> in("TWO")),
+                new UploadItem("tags.txt", Visibility.PRIVATE, List.of("a", ""), "text/plain", 3, () -> in("SIX")),
+                new UploadItem("novis.txt", null, null, "text/plain", 4, () -> in("FOUR")),
+                item("ok.txt", null, "FIVE")
+        ));
+
+        assertEquals(List.of(UploadResult.Outcome.INVALID, UploadResult.Outcome.INVALID,
+                        UploadResult.Outcome.INVALID, UploadResult.Outcome.INVALID, UploadResult.Outcome.CREATED),
+                results.stream().map(UploadResult::outcome).toList());
+        assertEquals("filename required", results.get(0).error());
+    }
+
+    @Test
+    void upload_withoutContentType_sniffsHeadAndStoresWholeStream() throws Exception {
+        String pdf = "%PDF-1.4\n" + "x".repeat(20_000);
+        FileMetadata m = service.upload("u1", "report.bin", Visibility.PRIVATE, null,
+                null, len(pdf), in(pdf));
+
+        assertEquals("application/pdf", m.contentType());
+        assertEquals(len(pdf), m.size());
+        assertEquals(pdf, new String(storage.get(m.contentHash()).stream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void upload_withoutContentType_fallsBackToFilename() {
+        FileMetadata m = service.upload("u1", "notes.txt", Visibility.PRIVATE, null,
+                "", len("plain words"), in("plain words"));
+        assertEquals("text/plain", m.contentType());
+    }
+
+    @Test
+    void compressAtRest_storesTextGzipped_andServesItDecoded() throws Exception {
+        FileService svc = compressing();
+        String log = "GET /files 200\n".repeat(500);
+
+        FileMetadata m = svc.upload("u1", "access.log", Visibility.PRIVATE, null, "text/plain", len(log), in(log));
+
+        assertEquals("gzip", m.contentEncoding());
+        assertTrue(m.storedSize() < m.size());
+        assertEquals(Set.of(m.contentHash() + ".gz"), storage.keys());
+        FileDownload download = svc.openDownload(m.linkId());
+        assertEquals(log, read(download.open().stream()));
+        assertEquals(log.substring(15, 30), read(download.open(15, 15).stream()));
+        assertEquals(log, read(new GZIPInputStream(download.openStored().stream())));
+    }
+
+    @Test
+    void compressAtRest_streamedUpload_isGzippedWhileWritten() throws Exception {
+        FileService svc = service(UploadOptions.DEFAULTS.withCompress(true).withPrehashLimit(4));
+        String json = "{\"k\":\"v\"}".repeat(200);
+
+        FileMetadata m = svc.upload("u1", "a.json", Visibility.PRIVATE, null, "application/json", len(json), in(json));
+
+        assertEquals("gzip", m.contentEncoding());
+        assertEquals(Set.of(m.contentHash() + ".gz"), storage.keys());
+        assertEquals(m.storedSize(), storage.get(m.contentHash() + ".gz").contentLength());
+        assertEquals(json, read(svc.openDownload(m.linkId()).open().stream()));
+    }
+
+    @Test
+    void compressAtRest_skipsBinaryTypes_andContentThatDoesNotShrink() {
+        FileService svc = compressing();
+
+        FileMetadata bin = svc.upload("u1", "a.bin", Visibility.PRIVATE, null,
+                "application/octet-stream", len("x".repeat(1000)), in("x".repeat(1000)));
+        FileMetadata tiny = svc.upload("u1", "b.txt", Visibility.PRIVATE, null, "text/plain", len("A"), in("A"));
+
+        assertNull(bin.contentEncoding());
+        assertNull(tiny.contentEncoding());
+        assertEquals(1, tiny.storedSize());
+        assertEquals(Set.of(bin.contentHash(), tiny.contentHash()), storage.keys());
+    }
+
+    @Test
+    void compressAtRest_sameContentUnderAnotherType_adoptsTheStoredCoding() throws Exception {
+        FileService svc = compressing();
+        String csv = "a,b,c\n".repeat(300);
+
+        FileMetadata text = svc.upload("u1", "a.csv", Visibility.PUBLIC, null, "text/csv", len(csv), in(csv));
+        FileMetadata raw = svc.upload("u2", "a.dat", Visibility.PRIVATE, null,
+                "application/octet-stream", len(csv), in(csv));
+        FileMetadata byHash = svc.uploadByHash("u3", "b.csv", Visibility.PRIVATE, null, null,
+                text.contentHash(), text.size());
+
+        assertEquals("gzip", raw.contentEncoding());
+        assertEquals(text.storedSize(), raw.storedSize());
+        assertEquals("gzip", byHash.contentEncoding());
+        assertEquals(Set.of(text.contentHash() + ".gz"), storage.keys());
+        assertEquals(csv, read(svc.openDownload(raw.linkId()).open().stream()));
+    }
+
+    private FileService compressing() {
+        return service(UploadOptions.DEFAULTS.withCompress(true));
+    }
+
+    private FileService service(UploadOptions options) {
+        return new DefaultFileService(repo, blobs, storage, Clock.systemUTC(), new SimpleMeterRegistry(), options);
+    }
+
+    private static String read(InputStream in) throws Exception {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static UploadItem item(String filename, List<String> tags, String content) {
+        return new UploadItem(filename, Visibility.PRIVATE, tags, "text/plain", len(content), () -> in(content));
+    }
+
+    private static ByteArrayInputStream in(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long len(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,99 @@
+package com.digitalarkcorp.filestorage;
+
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.infrastructure.metrics.TimedStoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceMetricsTest {
+
+    private SimpleMeterRegistry meters;
+    private DefaultFileService service;
+
+    @BeforeEach
+    void setup() {
+        meters = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+        StoragePort storage = new TimedStoragePort(new FakeStoragePort(), meters);
+        service = new DefaultFileService(new FakeMetadataRepository(), new FakeBlobRepository(), storage, clock,
+                meters, UploadOptions.DEFAULTS);
+    }
+
+    @Test
+    void upload_recordsEveryPhase() {
+        upload("a.txt", "hello");
+
+        for (String phase : List.of("spool", "hash", "dedup", "commit", "save")) {
+            assertEquals(1, meters.get("upload.phase").tags("phase", phase, "outcome", "success").timer().count(), phase);
+        }
+        assertEquals(5.0, meters.get("upload.bytes").summary().totalAmount());
+        assertEquals(1, meters.get("storage.operation").tags("operation", "put", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void duplicateName_recordsConflictOutcome() {
+        upload("a.txt", "one");
+        assertThrows(ConflictException.class, () -> upload("a.txt", "two"));
+
+        assertEquals(1, meters.get("upload.phase").tags("phase", "save", "outcome", "conflict").timer().count());
+    }
+
+    @Test
+    void download_recordsFirstByteAndBytesServed() throws Exception {
+        FileMetadata m = upload("a.txt", "hello");
+
+        FileDownload download = service.openDownload(m.linkId());
+        try (InputStream in = download.open().stream()) {
+            in.readAllBytes();
+        }
+
+        assertEquals(1, meters.get("download.ttfb").timer().count());
+        assertEquals(5.0, meters.get("download.bytes").tags("outcome", "complete").summary().totalAmount());
+    }
+
+    @Test
+    void abandonedDownload_isRecordedAsAborted() throws Exception {
+        FileMetadata m = upload("a.txt", "hello");
+
+        try (InputStream in = service.openDownload(m.linkId()).open().stream()) {
+            in.read();
+        }
+
+        assertEquals(1.0, meters.get("download.bytes").tags("outcome", "aborted").summary().totalAmount());
+    }
+
+    @Test
+    void failingStorageCall_recordsErrorOutcome() {
+        StoragePort storage = new TimedStoragePort(new FakeStoragePort(), meters);
+
+        assertThrows(RuntimeException.class, () -> storage.get("missing"));
+
+        assertEquals(1, meters.get("storage.operation").tags("operation", "get", "outcome", "error").timer().count());
+    }
+
+    private FileMetadata upload(String filename, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return service.upload("u1", filename, Visibility.PRIVATE, List.of(),
+                "text/plain", bytes.length, new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,181 @@
+package com.digitalarkcorp.filestorage;
+
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.DefaultUploadSessionService;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.application.UploadSessionService;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeUploadSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadSessionServiceUnitTest {
+
+    private FakeMetadataRepository repo;
+    private FakeStoragePort storage;
+    private FakeUploadSessionRepository sessions;
+    private FileService files;
+    private Clock clock;
+    private UploadSessionService uploads;
+
+    @BeforeEach
+    void setup() {
+        repo = new FakeMetadataRepository();
+        storage = new FakeStoragePort();
+        sessions = new FakeUploadSessionRepository();
+        clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+        files = new DefaultFileService(repo, new FakeBlobRepository(), storage, clock,
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        uploads = new DefaultUploadSessionService(sessions, repo, storage, files, clock);
+    }
+
+    @Test
+    void chunksAreAssembledInOrder_andHashCoversTheWholeFile() throws Exception {
+        UploadSession s = uploads.create("u1", "big.txt", Visibility.PRIVATE, List.of(), "text/plain", 11);
+
+        uploads.putChunk("u1", s.id(), 0, 6, in("hello "));
+        UploadSession after = uploads.putChunk("u1", s.id(), 1, 5, in("world"));
+        assertEquals(11, after.offset());
+        assertEquals(2, after.chunks());
+
+        FileMetadata m = uploads.complete("u1", s.id());
+
+        assertEquals(sha256("hello world"), m.contentHash());
+        assertEquals(11, m.size());
+        assertEquals("hello world", new String(storage.get(m.contentHash()).stream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(Set.of(m.contentHash()), storage.keys());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void complete_joinsChunksInStorage_withoutReadingThemBack() {
+        AtomicInteger reads = new AtomicInteger();
+        FakeStoragePort counting = new FakeStoragePort() {
+            @Override
+            public Resource get(String objectKey) {
+                reads.incrementAndGet();
+                return super.get(objectKey);
+            }
+
+            @Override
+            public void compose(List<String> sourceKeys, String targetKey) {
+                // stands in for a backend that joins objects itself
+                reads.addAndGet(-sourceKeys.size());
+                super.compose(sourceKeys, targetKey);
+            }
+        };
+        FileService countingFiles = new DefaultFileService(repo, new FakeBlobRepository(), counting, clock,
+                new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        UploadSessionService service = new DefaultUploadSessionService(sessions, repo, counting, countingFiles, clock);
+        UploadSession s = service.create("u1", "a.txt", Visibility.PRIVATE, List.of(), "text/plain", -1);
+        service.putChunk("u1", s.id(), 0, 3, in("abc"));
+        service.putChunk("u1", s.id(), 1, 3, in("def"));
+
+        FileMetadata m = service.complete("u1", s.id());
+
+        assertEquals(0, reads.get());
+        assertEquals(Set.of(m.contentHash()), counting.keys());
+    }
+
+    @Test
+    void sweep_deletesChunksOfExpiredSessions_only() {
+        UploadSession expired = uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), null, -1);
+        UploadSession live = uploads.create("u1", "b.txt", Visibility.PRIVATE, List.of(), null, -1);
+        uploads.putChunk("u1", expired.id(), 0, 1, in("a"));
+        uploads.putChunk("u1", live.id(), 0, 1, in("b"));
+        // as the TTL index does
+        sessions.delete(expired.id());
+
+        assertEquals(1, uploads.sweep());
+
+        assertEquals(sessions.findById(live.id()).chunkKeys(), List.copyOf(storage.keys()));
+    }
+
+    @Test
+    void digestIsRebuiltFromStoredChunks_whenTheInstanceLostIt() throws Exception {
+        UploadSession s = uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), "text/plain", -1);
+        uploads.putChunk("u1", s.id(), 0, 3, in("abc"));
+
+        // a fresh service has no in-memory digest for the session, as after a restart
+        UploadSessionService restarted = new DefaultUploadSessionService(sessions, repo, storage, files, clock);
+        restarted.putChunk("u1", s.id(), 1, 3, in("def"));
+
+        assertEquals(sha256("abcdef"), restarted.complete("u1", s.id()).contentHash());
+    }
+
+    @Test
+    void outOfOrderOrReplayedChunk_isConflict() {
+        UploadSession s = uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), null, -1);
+        uploads.putChunk("u1", s.id(), 0, 1, in("a"));
+
+        assertThrows(ConflictException.class, () -> uploads.putChunk("u1", s.id(), 0, 1, in("a")));
+        assertThrows(ConflictException.class, () -> uploads.putChunk("u1", s.id(), 2, 1, in("c")));
+        assertEquals(1, uploads.get("u1", s.id()).offset());
+    }
+
+    @Test
+    void chunkBeyondDeclaredLength_isRejected_andIncompleteUploadCannotComplete() {
+        UploadSession s = uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), null, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> uploads.putChunk("u1", s.id(), 0, -1, in("abcde")));
+        uploads.putChunk("u1", s.id(), 0, 2, in("ab"));
+        assertThrows(IllegalArgumentException.class, () -> uploads.complete("u1", s.id()));
+    }
+
+    @Test
+    void duplicateContent_isConflictAtComplete_andSessionIsCleanedUp() {
+        files.upload("u1", "first.txt", Visibility.PRIVATE, List.of(), "text/plain", 3, in("abc"));
+        UploadSession s = uploads.create("u1", "second.txt", Visibility.PRIVATE, List.of(), "text/plain", 3);
+        uploads.putChunk("u1", s.id(), 0, 3, in("abc"));
+
+        assertThrows(ConflictException.class, () -> uploads.complete("u1", s.id()));
+        assertEquals(0, sessions.size());
+        assertEquals(1, storage.keys().size());
+    }
+
+    @Test
+    void takenFilename_isConflictWhenOpening() {
+        files.upload("u1", "a.txt", Visibility.PRIVATE, List.of(), "text/plain", 1, in("x"));
+
+        assertThrows(ConflictException.class,
+                () -> uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), null, -1));
+    }
+
+    @Test
+    void otherUser_cannotTouchTheSession() {
+        UploadSession s = uploads.create("u1", "a.txt", Visibility.PRIVATE, List.of(), null, -1);
+
+        assertThrows(SecurityException.class, () -> uploads.putChunk("u2", s.id(), 0, 1, in("x")));
+        assertThrows(SecurityException.class, () -> uploads.abort("u2", s.id()));
+    }
+
+    private static ByteArrayInputStream in(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String s) throws Exception {
+        return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+}
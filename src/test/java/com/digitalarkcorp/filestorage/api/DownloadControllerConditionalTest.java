@@ -0,0 +1,109 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DownloadControllerConditionalTest {
+
+    private static final Instant UPDATED = Instant.parse("2025-01-01T10:00:00Z");
+
+    private StoragePort storage;
+    private DownloadController controller;
+
+    @BeforeEach
+    void setup() {
+        FileService service = Mockito.mock(FileService.class);
+        storage = Mockito.mock(StoragePort.class);
+        controller = new DownloadController(service);
+        when(service.openDownload("pub")).thenReturn(new FileDownload(meta("pub", Visibility.PUBLIC), storage));
+        when(service.openDownload("priv")).thenReturn(new FileDownload(meta("priv", Visibility.PRIVATE), storage));
+        when(storage.get(anyString())).thenAnswer(inv ->
+                new StoragePort.Resource(new ByteArrayInputStream("hello".getBytes()), 5, "text/plain"));
+    }
+
+    @Test
+    void matchingIfNoneMatch_returns304_withoutOpeningStorage() {
+        HttpHeaders req = new HttpHeaders();
+        req.setIfNoneMatch("\"hash-pub\"");
+
+        ResponseEntity<InputStreamResource> resp = controller.download("pub", req);
+
+        assertEquals(304, resp.getStatusCode().value());
+        assertEquals("\"hash-pub\"", resp.getHeaders().getETag());
+        assertEquals(UPDATED.toEpochMilli(), resp.getHeaders().getLastModified());
+        assertNull(resp.getBody());
+        verify(storage, never()).get(anyString());
+    }
+
+    @Test
+    void weakOrWildcardIfNoneMatch_alsoMatches() {
+        HttpHeaders weak = new HttpHeaders();
+        weak.setIfNoneMatch(List.of("\"other\"", "W/\"hash-pub\""));
+        assertEquals(304, controller.download("pub", weak).getStatusCode().value());
+
+        HttpHeaders star = new HttpHeaders();
+        star.setIfNoneMatch("*");
+        assertEquals(304, controller.download("pub", star).getStatusCode().value());
+    }
+
+    @Test
+    void changedEtag_returnsFullBody_evenWhenNotModifiedSince() {
+        HttpHeaders req = new HttpHeaders();
+        req.setIfNoneMatch("\"stale\"");
+        req.setIfModifiedSince(UPDATED.plusSeconds(60).toEpochMilli());
+
+        ResponseEntity<InputStreamResource> resp = controller.download("pub", req);
+
+        assertEquals(200, resp.getStatusCode().value());
+        assertNotNull(resp.getBody());
+    }
+
+    @Test
+    void ifModifiedSince_isHonouredWithoutIfNoneMatch() {
+        HttpHeaders req = new HttpHeaders();
+        req.setIfModifiedSince(UPDATED.toEpochMilli());
+        assertEquals(304, controller.download("pub", req).getStatusCode().value());
+
+        HttpHeaders older = new HttpHeaders();
+        older.setIfModifiedSince(UPDATED.minusSeconds(1).toEpochMilli());
+        assertEquals(200, controller.download("pub", older).getStatusCode().value());
+    }
+
+    @Test
+    void cacheControl_dependsOnVisibility() {
+        var pub = controller.download("pub", new HttpHeaders()).getHeaders().getCacheControl();
+        var priv = controller.download("priv", new HttpHeaders()).getHeaders().getCacheControl();
+
+        assertNotNull(pub);
+        assertTrue(pub.contains("public"));
+        assertNotNull(priv);
+        assertTrue(priv.contains("private") && priv.contains("no-cache"));
+    }
+
+    private static FileMetadata meta(String linkId, Visibility visibility) {
+        return new FileMetadata(
+                "id-" + linkId, "u1", linkId + ".txt", visibility, List.of(),
+                5, "text/plain", "hash-" + linkId, linkId, FileMetadata.FileStatus.READY,
+                UPDATED, UPDATED
+        );
+    }
+}
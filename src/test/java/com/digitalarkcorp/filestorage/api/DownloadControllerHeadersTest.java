@@ -1,63 +1,108 @@
-package com.digitalarkcorp.filestorage.api;
-
-import com.digitalarkcorp.filestorage.application.FileService;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
-import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.ResponseEntity;
-
-import java.io.ByteArrayInputStream;
-import java.time.Instant;
-import java.util.List;
-
-import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
-
-class DownloadControllerHeadersTest {
-
-    @Test
-    void download_sets_headers_disposition_ranges_type_length_and_etag() {
-        FileService service = Mockito.mock(FileService.class);
-        DownloadController controller = new DownloadController(service);
-
-        String linkId = "test-link";
-        byte[] data = "hello".getBytes();
-
-        // Resource: (InputStream, long contentLength, String contentType)
-        StoragePort.Resource resource =
-                new StoragePort.Resource(new ByteArrayInputStream(data), data.length, "text/plain");
-        when(service.getForDownload(linkId)).thenReturn(resource);
-
-        // Metadata com enum aninhado FileMetadata.FileStatus
-        FileMetadata meta = new FileMetadata(
-                "id1", "u1", "x.txt", Visibility.PUBLIC, List.of("Demo"),
-                data.length, "text/plain",
-                "abc123hash",  // será usado como ETag
-                linkId, FileMetadata.FileStatus.READY,
-                Instant.parse("2025-01-01T00:00:00Z"),
-                Instant.parse("2025-01-01T00:00:00Z")
-        );
-        when(service.findByLinkId(linkId)).thenReturn(meta);
-
-        ResponseEntity<InputStreamResource> resp = controller.download(linkId);
-
-        assertEquals(200, resp.getStatusCode().value());
-        var h = resp.getHeaders();
-
-        // Content-Disposition
-        assertEquals("attachment; filename=\"download.bin\"", h.getFirst("Content-Disposition"));
-        // Accept-Ranges
-        assertEquals("bytes", h.getFirst("Accept-Ranges"));
-        // Content-Type
-        assertEquals("text/plain", h.getFirst("Content-Type"));
-        // Content-Length
-        assertEquals(String.valueOf(data.length), h.getFirst("Content-Length"));
-        // ETag
-        assertEquals("\"abc123hash\"", h.getETag());
-
-        assertNotNull(resp.getBody());
-    }
-}
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class DownloadControllerHeadersTest {
+
+    @Test
+    void download_sets_headers_disposition_ranges_type_length_and_etag() {
+        FileService service = Mockito.mock(FileService.class);
+        DownloadController controller = new DownloadController(service);
+
+        String linkId = "test-link";
+        byte[] data = "hello".getBytes();
+
+        // Resource: (InputStream, long contentLength, String contentType)
+        StoragePort storage = Mockito.mock(StoragePort.class);
+        StoragePort.Resource resource =
+                new StoragePort.Resource(new ByteArrayInputStream(data), data.length, "text/plain");
+        when(storage.get("abc123hash")).thenReturn(resource);
+
+        // Metadata com enum aninhado FileMetadata.FileStatus
+        FileMetadata meta = new FileMetadata(
+                "id1", "u1", "x.txt", Visibility.PUBLIC, List.of("Demo"),
+                data.length, "text/plain",
+                "abc123hash",  // será usado como ETag
+                linkId, FileMetadata.FileStatus.READY,
+                Instant.parse("2025-01-01T00:00:00Z"),
+                Instant.parse("2025-01-01T00:00:00Z")
+        );
+        when(service.openDownload(linkId)).thenReturn(new FileDownload(meta, storage));
+
+        ResponseEntity<InputStreamResource> resp = controller.download(linkId, new HttpHeaders());
+
+        assertEquals(200, resp.getStatusCode().value());
+        var h = resp.getHeaders();
+
+        // Content-Disposition
+        assertEquals("attachment; filename=\"download.bin\"", h.getFirst("Content-Disposition"));
+        // Accept-Ranges
+        assertEquals("bytes", h.getFirst("Accept-Ranges"));
+        // Content-Type
+        assertEquals("text/plain", h.getFirst("Content-Type"));
+        // Content-Length
+        assertEquals(String.valueOf(data.length), h.getFirst("Content-Length"));
+        // ETag
+        assertEquals("\"abc123hash\"", h.getETag());
+
+        assertNotNull(resp.getBody());
+    }
+
+    @Test
+    void compressedBlob_isSentAsStoredOnlyWhenGzipIsAccepted() throws Exception {
+        byte[] data = "a,b,c\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] gz = ContentEncodings.gzip(data);
+        FakeStoragePort storage = new FakeStoragePort();
+        storage.put("csvhash.gz", new ByteArrayInputStream(gz), gz.length, "text/csv");
+        Instant t = Instant.parse("2025-01-01T00:00:00Z");
+        FileMetadata meta = new FileMetadata(
+                "id1", "u1", "x.csv", Visibility.PUBLIC, List.of(), data.length, "text/csv", "csvhash",
+                "csv-link", FileMetadata.FileStatus.READY, t, t, "gzip", gz.length);
+        FileService service = Mockito.mock(FileService.class);
+        when(service.openDownload("csv-link")).thenAnswer(inv -> new FileDownload(meta, storage));
+        DownloadController controller = new DownloadController(service);
+
+        HttpHeaders gzip = new HttpHeaders();
+        gzip.set(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8");
+        ResponseEntity<InputStreamResource> stored = controller.download("csv-link", gzip);
+
+        assertEquals("gzip", stored.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(gz.length, stored.getHeaders().getContentLength());
+        assertEquals("\"csvhash-gzip\"", stored.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), stored.getHeaders().getVary());
+        assertArrayEquals(gz, stored.getBody().getInputStream().readAllBytes());
+
+        HttpHeaders refused = new HttpHeaders();
+        refused.set(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+        ResponseEntity<InputStreamResource> decoded = controller.download("csv-link", refused);
+
+        assertNull(decoded.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(data.length, decoded.getHeaders().getContentLength());
+        assertEquals("\"csvhash\"", decoded.getHeaders().getETag());
+        assertArrayEquals(data, decoded.getBody().getInputStream().readAllBytes());
+
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        revalidate.setIfNoneMatch("\"csvhash-gzip\"");
+        assertEquals(304, controller.download("csv-link", revalidate).getStatusCode().value());
+    }
+}
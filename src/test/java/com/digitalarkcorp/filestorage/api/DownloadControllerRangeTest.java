@@ -0,0 +1,133 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadControllerRangeTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private DownloadController controller;
+    private FileMetadata meta;
+
+    @BeforeEach
+    void setup() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+        FileService service = new DefaultFileService(new FakeMetadataRepository(), new FakeBlobRepository(),
+                new FakeStoragePort(), clock, new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        byte[] data = CONTENT.getBytes(StandardCharsets.UTF_8);
+        meta = service.upload("u1", "digits.txt", Visibility.PUBLIC, List.of(),
+                "text/plain", data.length, new ByteArrayInputStream(data));
+        controller = new DownloadController(service);
+    }
+
+    @Test
+    void singleRange_returnsPartialContent() throws Exception {
+        ResponseEntity<InputStreamResource> resp = controller.download(meta.linkId(), range("bytes=2-5"));
+
+        assertEquals(206, resp.getStatusCode().value());
+        assertEquals("bytes 2-5/10", resp.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, resp.getHeaders().getContentLength());
+        assertEquals("2345", body(resp));
+    }
+
+    @Test
+    void suffixRange_returnsTail() throws Exception {
+        ResponseEntity<InputStreamResource> resp = controller.download(meta.linkId(), range("bytes=-3"));
+
+        assertEquals(206, resp.getStatusCode().value());
+        assertEquals("bytes 7-9/10", resp.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", body(resp));
+    }
+
+    @Test
+    void unsatisfiableRange_returns416() {
+        ResponseEntity<InputStreamResource> resp = controller.download(meta.linkId(), range("bytes=50-60"));
+
+        assertEquals(416, resp.getStatusCode().value());
+        assertEquals("bytes */10", resp.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void staleIfRange_returnsWholeFile() throws Exception {
+        HttpHeaders req = range("bytes=2-5");
+        req.set(HttpHeaders.IF_RANGE, "\"some-other-hash\"");
+
+        ResponseEntity<InputStreamResource> resp = controller.download(meta.linkId(), req);
+
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals(CONTENT, body(resp));
+    }
+
+    @Test
+    void multipleRanges_returnMultipartByteranges() throws Exception {
+        HttpHeaders req = range("bytes=0-1,8-9");
+        req.set(HttpHeaders.IF_RANGE, "\"" + meta.contentHash() + "\"");
+
+        ResponseEntity<InputStreamResource> resp = controller.download(meta.linkId(), req);
+
+        assertEquals(206, resp.getStatusCode().value());
+        var ct = resp.getHeaders().getContentType();
+        assertNotNull(ct);
+        assertEquals("multipart/byteranges", ct.getType() + "/" + ct.getSubtype());
+        String body = body(resp);
+        assertEquals(resp.getHeaders().getContentLength(), body.getBytes(StandardCharsets.US_ASCII).length);
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+        assertTrue(body.endsWith("--" + ct.getParameter("boundary") + "--\r\n"));
+    }
+
+    @Test
+    void manyRangesOfAnEncodedBlob_areServedWhole() throws Exception {
+        FileService compressing = new DefaultFileService(new FakeMetadataRepository(), new FakeBlobRepository(),
+                new FakeStoragePort(), Clock.systemUTC(), new SimpleMeterRegistry(),
+                UploadOptions.DEFAULTS.withCompress(true));
+        String text = "a,b,c\n".repeat(100);
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        FileMetadata csv = compressing.upload("u1", "rows.csv", Visibility.PUBLIC, List.of(),
+                "text/csv", data.length, new ByteArrayInputStream(data));
+        assertEquals("gzip", csv.contentEncoding());
+        DownloadController c = new DownloadController(compressing);
+
+        assertEquals(206, c.download(csv.linkId(), range("bytes=0-1,6-7,12-13,18-19")).getStatusCode().value());
+
+        // each part would inflate the blob from its start again
+        ResponseEntity<InputStreamResource> resp = c.download(csv.linkId(), range("bytes=0-1,6-7,12-13,18-19,24-25"));
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals(text, body(resp));
+    }
+
+    private static HttpHeaders range(String value) {
+        HttpHeaders h = new HttpHeaders();
+        h.set(HttpHeaders.RANGE, value);
+        return h;
+    }
+
+    private static String body(ResponseEntity<InputStreamResource> resp) throws Exception {
+        assertNotNull(resp.getBody());
+        try (var in = resp.getBody().getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.digitalarkcorp.filestorage.api;
+
+import com.digitalarkcorp.filestorage.application.DefaultFileService;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.application.UploadOptions;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.ReactiveStoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeBlobRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveDownloadControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private ReactiveDownloadController controller;
+    private FileMetadata meta;
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+        FakeStoragePort storage = new FakeStoragePort();
+        FileService service = new DefaultFileService(new FakeMetadataRepository(), new FakeBlobRepository(),
+                storage, clock, new SimpleMeterRegistry(), UploadOptions.DEFAULTS);
+        byte[] data = CONTENT.getBytes(StandardCharsets.UTF_8);
+        meta = service.upload("u1", "digits.txt", Visibility.PUBLIC, List.of(),
+                "text/plain", data.length, new ByteArrayInputStream(data));
+
+        // small buffers so multi-buffer bodies are exercised
+        ReactiveStoragePort reactive = (key, offset, length) -> {
+            reads.incrementAndGet();
+            return DataBufferUtils.readInputStream(
+                    () -> storage.get(key, offset, length).stream(), DefaultDataBufferFactory.sharedInstance, 3);
+        };
+        controller = new ReactiveDownloadController(service, reactive);
+    }
+
+    @Test
+    void fullDownload_streamsWholeFile() {
+        ResponseEntity<Flux<DataBuffer>> resp = controller.download(meta.linkId(), new HttpHeaders()).block();
+
+        assertNotNull(resp);
+        assertEquals(200, resp.getStatusCode().value());
+        assertEquals(10, resp.getHeaders().getContentLength());
+        assertEquals("\"" + meta.contentHash() + "\"", resp.getHeaders().getETag());
+        assertEquals(CONTENT, body(resp));
+    }
+
+    @Test
+    void singleRange_returnsPartialContent() {
+        ResponseEntity<Flux<DataBuffer>> resp = controller.download(meta.linkId(), range("bytes=2-5")).block();
+
+        assertNotNull(resp);
+        assertEquals(206, resp.getStatusCode().value());
+        assertEquals("bytes 2-5/10", resp.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", body(resp));
+    }
+
+    @Test
+    void multipleRanges_returnMultipartByteranges() {
+        ResponseEntity<Flux<DataBuffer>> resp = controller.download(meta.linkId(), range("bytes=0-1,8-9")).block();
+
+        assertNotNull(resp);
+        assertEquals(206, resp.getStatusCode().value());
+        String body = body(resp);
+        assertEquals(resp.getHeaders().getContentLength(), body.getBytes(StandardCharsets.US_ASCII).length);
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+    }
+
+    @Test
+    void matchingEtag_returns304_withoutReadingStorage() {
+        HttpHeaders req = new HttpHeaders();
+        req.setIfNoneMatch("\"" + meta.contentHash() + "\"");
+
+        ResponseEntity<Flux<DataBuffer>> resp = controller.download(meta.linkId(), req).block();
+
+        assertNotNull(resp);
+        assertEquals(304, resp.getStatusCode().value());
+        assertNull(resp.getBody());
+        assertEquals(0, reads.get());
+    }
+
+    private static HttpHeaders range(String value) {
+        HttpHeaders h = new HttpHeaders();
+        h.set(HttpHeaders.RANGE, value);
+        return h;
+    }
+
+    private static String body(ResponseEntity<Flux<DataBuffer>> resp) {
+        assertNotNull(resp.getBody());
+        DataBuffer joined = DataBufferUtils.join(resp.getBody()).block();
+        assertNotNull(joined);
+        return joined.toString(StandardCharsets.US_ASCII);
+    }
+}
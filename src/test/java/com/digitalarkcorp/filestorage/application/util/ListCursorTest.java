@@ -0,0 +1,41 @@
+package com.digitalarkcorp.filestorage.application.util;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListCursorTest {
+
+    private static final FileMetadata LAST = new FileMetadata(
+            "65a000000000000000000001", "u1", "a|b.txt", Visibility.PUBLIC, List.of(),
+            42, null, "h", "l", FileMetadata.FileStatus.READY,
+            Instant.parse("2025-01-01T00:00:00.123Z"), Instant.parse("2025-01-02T00:00:00Z"));
+
+    @Test
+    void roundTrip_keepsTypedSortValue() {
+        var created = ListCursor.decode(ListCursor.next(query(ListQuery.SortBy.CREATED_AT), LAST));
+        assertEquals(LAST.createdAt(), created.value());
+        assertEquals(LAST.id(), created.id());
+        assertEquals(ListQuery.SortDir.DESC, created.sortDir());
+
+        assertEquals(42L, ListCursor.decode(ListCursor.next(query(ListQuery.SortBy.SIZE), LAST)).value());
+        assertEquals("a|b.txt", ListCursor.decode(ListCursor.next(query(ListQuery.SortBy.FILENAME), LAST)).value());
+        assertNull(ListCursor.decode(ListCursor.next(query(ListQuery.SortBy.CONTENT_TYPE), LAST)).value());
+    }
+
+    @Test
+    void tagSort_hasNoCursor_andGarbageIsRejected() {
+        assertNull(ListCursor.next(query(ListQuery.SortBy.TAG), LAST));
+        assertThrows(IllegalArgumentException.class, () -> ListCursor.decode("not-a-cursor"));
+    }
+
+    private static ListQuery query(ListQuery.SortBy sortBy) {
+        return new ListQuery(null, null, sortBy, ListQuery.SortDir.DESC, 0, 20);
+    }
+}
@@ -0,0 +1,85 @@
+package com.digitalarkcorp.filestorage.infrastructure.cache;
+
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeMetadataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingMetadataRepositoryTest {
+
+    private final AtomicInteger linkLookups = new AtomicInteger();
+    private CachingMetadataRepository repo;
+    private FileMetadata saved;
+
+    @BeforeEach
+    void setup() {
+        FakeMetadataRepository fake = new FakeMetadataRepository() {
+            @Override
+            public FileMetadata findByLinkId(String linkId) {
+                linkLookups.incrementAndGet();
+                return super.findByLinkId(linkId);
+            }
+        };
+        repo = new CachingMetadataRepository(fake, 100, Duration.ofMinutes(1));
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        saved = repo.save(new FileMetadata(null, "u1", "a.txt", Visibility.PUBLIC, List.of(),
+                1, "text/plain", "h1", "link-1", FileMetadata.FileStatus.READY, now, now));
+    }
+
+    @Test
+    void repeatedLinkLookups_hitTheCache() {
+        assertEquals(saved.id(), repo.findByLinkId("link-1").id());
+        assertEquals(saved.id(), repo.findByLinkId("link-1").id());
+        assertEquals(1, linkLookups.get());
+    }
+
+    @Test
+    void misses_areNotCached() {
+        assertNull(repo.findByLinkId("missing"));
+        assertNull(repo.findByLinkId("missing"));
+        assertEquals(2, linkLookups.get());
+    }
+
+    @Test
+    void rename_evictsCachedEntries() {
+        repo.findByLinkId("link-1");
+        repo.findById(saved.id());
+
+        repo.rename(saved.id(), "b.txt", Instant.parse("2025-01-02T00:00:00Z"));
+
+        assertEquals("b.txt", repo.findByLinkId("link-1").filename());
+        assertEquals("b.txt", repo.findById(saved.id()).filename());
+    }
+
+    @Test
+    void delete_evictsCachedLink() {
+        repo.findByLinkId("link-1");
+
+        assertTrue(repo.deleteByIdAndOwner(saved.id(), "u1"));
+
+        assertNull(repo.findByLinkId("link-1"));
+        assertNull(repo.findById(saved.id()));
+    }
+
+    @Test
+    void batchDelete_evictsEachCachedLink() {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        FileMetadata other = repo.save(new FileMetadata(null, "u1", "b.txt", Visibility.PUBLIC, List.of(),
+                1, "text/plain", "h2", "link-2", FileMetadata.FileStatus.READY, now, now));
+        repo.findByLinkId("link-1");
+        repo.findByLinkId("link-2");
+
+        assertEquals(2, repo.deleteAllByIdsAndOwner(List.of(saved.id(), other.id()), "u1"));
+
+        assertNull(repo.findByLinkId("link-1"));
+        assertNull(repo.findByLinkId("link-2"));
+    }
+}
@@ -0,0 +1,237 @@
+package com.digitalarkcorp.filestorage.infrastructure.cache;
+
+import com.digitalarkcorp.filestorage.application.util.ContentEncodings;
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskCachingStoragePortTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger remoteReads = new AtomicInteger();
+    private FakeStoragePort remote;
+    private SimpleMeterRegistry meters;
+
+    @BeforeEach
+    void setup() {
+        remote = new FakeStoragePort() {
+            @Override
+            public Resource get(String objectKey) {
+                remoteReads.incrementAndGet();
+                return super.get(objectKey);
+            }
+
+            @Override
+            public Resource get(String objectKey, long offset, long length) {
+                remoteReads.incrementAndGet();
+                return super.get(objectKey, offset, length);
+            }
+        };
+        meters = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void secondRead_isServedFromDisk() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = put("hello");
+
+        assertEquals("hello", read(cache.get(key)));
+        assertEquals("hello", read(cache.get(key)));
+
+        assertEquals(1, remoteReads.get());
+        assertEquals(1, meters.get("storage.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1, meters.get("storage.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(5.0, meters.get("storage.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void rangeMiss_fillsTheCacheForLaterReads() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = put("hello world");
+
+        assertEquals("world", read(cache.get(key, 6, 5)));
+        assertEquals("hello", read(cache.get(key, 0, 5)));
+
+        // the range itself and the background fill
+        assertEquals(2, remoteReads.get());
+    }
+
+    @Test
+    void concurrentMiss_isServedFromTheBackend_withoutWaitingForTheFill() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = put("hello");
+
+        StoragePort.Resource first = cache.get(key);
+        assertEquals("hello", read(cache.get(key)));
+        assertEquals(0, cache.cachedBytes());
+
+        assertEquals("hello", read(first));
+        assertEquals(5, cache.cachedBytes());
+        assertEquals(2, remoteReads.get());
+    }
+
+    @Test
+    void readCutShort_isNotCached() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = put("hello");
+
+        try (InputStream in = cache.get(key).stream()) {
+            assertEquals('h', in.read());
+        }
+
+        assertEquals(0, cache.cachedBytes());
+        try (var left = Files.list(dir.resolve(DiskCachingStoragePort.FILL_DIR))) {
+            assertEquals(0, left.count());
+        }
+        assertEquals("hello", read(cache.get(key)));
+        assertEquals(5, cache.cachedBytes());
+    }
+
+    @Test
+    void rangeMissOnALargeObject_fetchesItWholeOnlyOnce() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 4);
+        String big = put("too large");
+
+        assertEquals("to", read(cache.get(big, 0, 2)));
+        assertEquals("la", read(cache.get(big, 4, 2)));
+
+        // two ranges and one fetch that found it too large
+        assertEquals(3, remoteReads.get());
+        assertEquals(0, cache.cachedBytes());
+    }
+
+    @Test
+    void leastRecentlyRead_isEvictedPastTheBudget() throws Exception {
+        DiskCachingStoragePort cache = cache(10, 10);
+        String a = put("aaaa");
+        String b = put("bbbb");
+        String c = put("cccc");
+
+        read(cache.get(a));
+        read(cache.get(b));
+        read(cache.get(a));
+        read(cache.get(c));
+
+        assertEquals(8, cache.cachedBytes());
+        remoteReads.set(0);
+        read(cache.get(a));
+        read(cache.get(c));
+        assertEquals(0, remoteReads.get());
+        read(cache.get(b));
+        assertEquals(1, remoteReads.get());
+    }
+
+    @Test
+    void corruptObject_isServedButNotCached() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = sha256("expected");
+        remote.put(key, stream("tampered"), 8, null);
+
+        assertEquals("tampered", read(cache.get(key)));
+        read(cache.get(key));
+
+        assertEquals(0, cache.cachedBytes());
+        assertEquals(2, meters.get("storage.cache.requests").tag("result", "corrupt").counter().count());
+    }
+
+    @Test
+    void encodedCopies_areCached_whenTheirDecodedContentMatches() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        byte[] gz = ContentEncodings.gzip("hello hello hello".getBytes(StandardCharsets.UTF_8));
+        String key = sha256("hello hello hello") + ".gz";
+        String forged = sha256("something else") + ".gz";
+        remote.put(key, new ByteArrayInputStream(gz), gz.length, null);
+        remote.put(forged, new ByteArrayInputStream(gz), gz.length, null);
+
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = cache.get(key).stream()) {
+                assertArrayEquals(gz, in.readAllBytes());
+            }
+            read(cache.get(forged));
+        }
+
+        assertEquals(3, remoteReads.get());
+        assertEquals(gz.length, cache.cachedBytes());
+        assertEquals(2, meters.get("storage.cache.requests").tag("result", "corrupt").counter().count());
+    }
+
+    @Test
+    void largeObjects_andOtherKeys_bypassTheCache() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 4);
+        String big = put("too large");
+        remote.put("uploads/part-1", stream("raw"), 3, null);
+
+        read(cache.get(big));
+        read(cache.get(big));
+        read(cache.get("uploads/part-1"));
+        read(cache.get("uploads/part-1"));
+
+        assertEquals(4, remoteReads.get());
+        assertEquals(0, cache.cachedBytes());
+    }
+
+    @Test
+    void delete_dropsTheLocalCopy() throws Exception {
+        DiskCachingStoragePort cache = cache(1024, 1024);
+        String key = put("hello");
+        read(cache.get(key));
+
+        cache.delete(key);
+
+        assertEquals(0, cache.cachedBytes());
+        assertThrows(RuntimeException.class, () -> cache.get(key));
+    }
+
+    @Test
+    void restart_keepsWhatWasCached() throws Exception {
+        String key = put("hello");
+        read(cache(1024, 1024).get(key));
+
+        DiskCachingStoragePort restarted = cache(1024, 1024);
+
+        assertEquals(5, restarted.cachedBytes());
+        assertEquals("hello", read(restarted.get(key)));
+        assertEquals(1, remoteReads.get());
+    }
+
+    private DiskCachingStoragePort cache(long maxBytes, long maxObjectBytes) {
+        return new DiskCachingStoragePort(remote, dir, maxBytes, maxObjectBytes, Runnable::run, meters);
+    }
+
+    private String put(String content) throws Exception {
+        String key = sha256(content);
+        remote.put(key, stream(content), content.length(), null);
+        return key;
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(StoragePort.Resource r) throws Exception {
+        try (InputStream in = r.stream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String sha256(String s) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.digitalarkcorp.filestorage.infrastructure.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.reactive.ReactiveWebServerFactoryAutoConfiguration;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatReactiveWebServerFactory;
+import org.springframework.boot.web.reactive.server.ReactiveWebServerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EdgeServerConfigTest {
+
+    private final ReactiveWebApplicationContextRunner runner = new ReactiveWebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ReactiveWebServerFactoryAutoConfiguration.class))
+            .withUserConfiguration(EdgeServerConfig.class);
+
+    @Test
+    void edgeProfile_servesOnNetty() {
+        runner.withInitializer(ctx -> ctx.getEnvironment().setActiveProfiles("edge"))
+                .run(ctx -> assertThat(ctx).getBean(ReactiveWebServerFactory.class)
+                        .isInstanceOf(NettyReactiveWebServerFactory.class));
+    }
+
+    @Test
+    void withoutTheProfile_tomcatOnTheClasspathWins() {
+        // why the edge profile cannot rely on web-application-type alone
+        runner.run(ctx -> assertThat(ctx).getBean(ReactiveWebServerFactory.class)
+                .isInstanceOf(TomcatReactiveWebServerFactory.class));
+    }
+}
@@ -0,0 +1,184 @@
+package com.digitalarkcorp.filestorage.infrastructure.fs;
+
+import com.digitalarkcorp.filestorage.domain.ports.StoragePort;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageAdapterTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void get_streamsWholeFile_andTransfersThroughChannel() throws Exception {
+        LocalStorageAdapter adapter = new LocalStorageAdapter(root);
+        byte[] data = "local-bytes".getBytes(StandardCharsets.UTF_8);
+        adapter.put("k1", new ByteArrayInputStream(data), data.length, "text/plain");
+
+        StoragePort.Resource r = adapter.get("k1");
+        assertEquals(data.length, r.contentLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (var in = r.stream()) {
+            assertEquals(data.length, in.transferTo(out));
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    void rangedGet_readsOnlyTheRange() throws Exception {
+        LocalStorageAdapter adapter = new LocalStorageAdapter(root);
+        byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+        adapter.put("k2", new ByteArrayInputStream(data), data.length, "text/plain");
+
+        StoragePort.Resource r = adapter.get("k2", 3, 4);
+        assertEquals(4, r.contentLength());
+        try (var in = r.stream()) {
+            assertEquals("3456", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (var in = adapter.get("k2", 8, 2).stream()) {
+            in.transferTo(out);
+        }
+        assertEquals("89", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void contentHashKeys_fanOutByPrefix_andLeaveNoStagingFiles() throws Exception {
+        LocalStorageAdapter adapter = new LocalStorageAdapter(root, LocalStorageAdapter.Durability.FILE_AND_DIRECTORY);
+        String hash = "ab".repeat(32);
+        byte[] data = "sharded".getBytes(StandardCharsets.UTF_8);
+        adapter.put(hash, new ByteArrayInputStream(data), data.length, "text/plain");
+
+        assertTrue(Files.isRegularFile(root.resolve("ab").resolve("ab").resolve(hash)));
+        assertFalse(Files.exists(root.resolve(hash)));
+        try (var staged = Files.list(root.resolve(LocalStorageAdapter.STAGING_DIR))) {
+            assertEquals(0, staged.count());
+        }
+        try (var in = adapter.get(hash).stream()) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void failedPut_keepsThePreviousObject() throws Exception {
+        LocalStorageAdapter adapter = new LocalStorageAdapter(root);
+        byte[] data = "complete".getBytes(StandardCharsets.UTF_8);
+        adapter.put("k3", new ByteArrayInputStream(data), data.length, "text/plain");
+
+        InputStream broken = new InputStream() {
+            private int left = 3;
+
+            @Override
+            public int read() throws IOException {
+                if (left-- > 0) return 'x';
+                throw new IOException("connection reset");
+            }
+        };
+        assertThrows(UncheckedIOException.class, () -> adapter.put("k3", broken, 10, "text/plain"));
+
+        try (var in = adapter.get("k3").stream()) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void failedPut_withRuntimeException_leavesNoStagingFile() throws Exception {
+        LocalStorageAdapter adapter = new LocalStorageAdapter(root);
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("decoder failed");
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> adapter.put("k4", broken, 10, "text/plain"));
+
+        try (var staged = Files.list(root.resolve(LocalStorageAdapter.STAGING_DIR))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void migration_movesFlatObjects_andReadsWorkBeforeAndAfter() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        Files.writeString(root.resolve(hash), "legacy");
+        LocalLayout layout = new LocalLayout(root);
+        LocalStorageAdapter adapter = new LocalStorageAdapter(layout, LocalStorageAdapter.Durability.FILE);
+
+        try (var in = adapter.get(hash).stream()) {
+            assertEquals("legacy", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        assertEquals(1, LocalLayoutMigration.migrate(layout));
+        assertFalse(Files.exists(root.resolve(hash)));
+        assertTrue(Files.exists(root.resolve("01").resolve("23").resolve(hash)));
+        try (var in = adapter.get(hash, 0, 3).stream()) {
+            assertEquals("leg", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(0, LocalLayoutMigration.migrate(layout));
+    }
+
+    @Test
+    void migration_countsFlatDuplicatesApartFromMovedObjects() throws Exception {
+        String moved = "0123456789abcdef".repeat(4);
+        String duplicate = "fedcba9876543210".repeat(4);
+        Files.writeString(root.resolve(moved), "legacy");
+        Files.writeString(root.resolve(duplicate), "both");
+        Path sharded = root.resolve("fe").resolve("dc").resolve(duplicate);
+        Files.createDirectories(sharded.getParent());
+        Files.writeString(sharded, "both");
+
+        assertEquals(1, LocalLayoutMigration.migrate(new LocalLayout(root)));
+        assertFalse(Files.exists(root.resolve(duplicate)));
+        assertEquals("both", Files.readString(sharded));
+    }
+
+    @Test
+    void readDuringMigration_findsAFileMovedBetweenAttempts() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        Path flat = root.resolve(hash);
+        Path sharded = root.resolve("01").resolve("23").resolve(hash);
+        Files.writeString(flat, "legacy");
+        LocalLayout layout = new LocalLayout(root);
+
+        String read = LocalStorageAdapter.onReadPath(layout, hash, p -> {
+            if (p.equals(flat)) {
+                // the migration moves the file just before the flat path is opened
+                Files.createDirectories(sharded.getParent());
+                Files.move(flat, sharded);
+            }
+            return Files.readString(p);
+        });
+
+        assertEquals("legacy", read);
+    }
+
+    @Test
+    void migratedRoot_stopsLookingAtFlatPaths() throws Exception {
+        String hash = "fedcba9876543210".repeat(4);
+        Files.writeString(root.resolve("unrelated.txt"), "pre-sharding root");
+        LocalLayout layout = new LocalLayout(root);
+        assertTrue(layout.flatFallback());
+
+        LocalLayoutMigration.migrate(layout);
+        assertFalse(layout.flatFallback());
+        // a flat file appearing later, e.g. restored from an old backup, is not served
+        Files.writeString(root.resolve(hash), "stale");
+        LocalStorageAdapter adapter = new LocalStorageAdapter(layout, LocalStorageAdapter.Durability.FILE);
+        assertThrows(UncheckedIOException.class, () -> adapter.get(hash));
+        assertFalse(new LocalLayout(root).flatFallback());
+    }
+}
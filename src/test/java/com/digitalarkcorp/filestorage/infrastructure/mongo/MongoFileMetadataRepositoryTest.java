@@ -0,0 +1,72 @@
+package com.digitalarkcorp.filestorage.infrastructure.mongo;
+
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.infrastructure.mongo.model.FileMetadataDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MongoFileMetadataRepositoryTest {
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final MongoFileMetadataRepository repo = new MongoFileMetadataRepository(mongo);
+
+    @Test
+    void save_duplicateFilename_isAConflict() {
+        when(mongo.insert(any(FileMetadataDocument.class), eq("files"))).thenThrow(duplicate());
+        taken("filename");
+
+        ConflictException e = assertThrows(ConflictException.class, () -> repo.save(file()));
+        assertEquals("filename already exists for owner", e.getMessage());
+    }
+
+    @Test
+    void save_duplicateContent_isAConflict() {
+        when(mongo.insert(any(FileMetadataDocument.class), eq("files"))).thenThrow(duplicate());
+        taken("contentHash");
+
+        ConflictException e = assertThrows(ConflictException.class, () -> repo.save(file()));
+        assertEquals("content already exists for owner", e.getMessage());
+    }
+
+    @Test
+    void rename_duplicateFilename_isAConflict() {
+        when(mongo.updateFirst(any(Query.class), any(Update.class), eq("files"))).thenThrow(duplicate());
+
+        assertThrows(ConflictException.class, () -> repo.rename("id", "taken.txt", Instant.now()));
+    }
+
+    @Test
+    void otherDuplicateKeys_arePassedThrough() {
+        when(mongo.insert(any(FileMetadataDocument.class), eq("files"))).thenThrow(duplicate());
+
+        assertThrows(DuplicateKeyException.class, () -> repo.save(file()));
+    }
+
+    /** The error text is not relied on; the unique keys are looked up. */
+    private static DuplicateKeyException duplicate() {
+        return new DuplicateKeyException("E11000 duplicate key error");
+    }
+
+    private void taken(String field) {
+        when(mongo.exists(argThat((Query q) -> q.getQueryObject().containsKey(field)),
+                eq(FileMetadataDocument.class), eq("files"))).thenReturn(true);
+    }
+
+    private static FileMetadata file() {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+        return new FileMetadata(null, "u1", "a.txt", Visibility.PRIVATE, List.of(), 1, "text/plain",
+                "hash", "link", FileMetadata.FileStatus.READY, now, now);
+    }
+}
@@ -0,0 +1,141 @@
+package com.digitalarkcorp.filestorage.load;
+
+import com.digitalarkcorp.filestorage.api.DownloadController;
+import com.digitalarkcorp.filestorage.application.FileDownload;
+import com.digitalarkcorp.filestorage.application.FileService;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.testdouble.FakeStoragePort;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Many clients download a large file at the same time and read it slowly, so every response
+ * holds its request thread for as long as the client stays connected. With a small platform
+ * pool only the first few clients see a byte until earlier ones hang up; on virtual threads
+ * every client is served at once. Run with {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class SlowReaderDownloadLoadTest {
+
+    private static final int CLIENTS = 200;
+    private static final int PLATFORM_THREADS = 20;
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+    private static final Duration HOLD = Duration.ofSeconds(5);
+    private static final Duration FIRST_BYTE_DEADLINE = Duration.ofSeconds(2);
+
+    @Test
+    void slowReaders_platformVsVirtualThreads() throws Exception {
+        int platform = servedWithinDeadline(false);
+        int virtual = servedWithinDeadline(true);
+
+        // every slow client holds its thread past the deadline, so a platform pool serves at most its size
+        assertTrue(platform <= PLATFORM_THREADS,
+                () -> platform + " clients served by " + PLATFORM_THREADS + " platform threads");
+        assertEquals(CLIENTS, virtual, "clients served on virtual threads");
+    }
+
+    /** Number of clients that received the first response byte before the deadline. */
+    private static int servedWithinDeadline(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(DownloadOnly.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=" + PLATFORM_THREADS,
+                "--logging.level.com.digitalarkcorp.filestorage=INFO",
+                "--logging.level.org.springframework.web=INFO")) {
+            int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+            InetSocketAddress address = new InetSocketAddress("localhost", port);
+
+            try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+                List<Future<Duration>> firstBytes = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                    firstBytes.add(clients.submit(() -> slowDownload(address)));
+                }
+                int served = 0;
+                for (Future<Duration> f : firstBytes) {
+                    Duration d = f.get();
+                    if (d != null && d.compareTo(FIRST_BYTE_DEADLINE) <= 0) served++;
+                }
+                return served;
+            }
+        }
+    }
+
+    /** Time to first byte, or null if none arrived; then trickles the body until {@link #HOLD} ends. */
+    private static Duration slowDownload(InetSocketAddress address) throws Exception {
+        Instant start = Instant.now();
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(16 * 1024);
+            socket.connect(address);
+            socket.getOutputStream().write(
+                    "GET /d/link HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                            .getBytes(StandardCharsets.US_ASCII));
+            socket.setSoTimeout((int) HOLD.multipliedBy(2).toMillis());
+
+            InputStream in = socket.getInputStream();
+            try {
+                if (in.read() == -1) return null;
+            } catch (SocketTimeoutException e) {
+                return null;
+            }
+            Duration firstByte = Duration.between(start, Instant.now());
+
+            byte[] buf = new byte[1024];
+            Instant until = start.plus(HOLD);
+            while (Instant.now().isBefore(until) && in.read(buf) != -1) {
+                Thread.sleep(100);
+            }
+            return firstByte;
+        }
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class})
+    @Import(DownloadController.class)
+    static class DownloadOnly {
+
+        @Bean
+        FileService fileService() {
+            FakeStoragePort storage = new FakeStoragePort();
+            storage.put("hash", new ByteArrayInputStream(new byte[FILE_SIZE]), FILE_SIZE, "application/octet-stream");
+            Instant now = Instant.now();
+            FileMetadata meta = new FileMetadata("id", "u1", "big.bin", Visibility.PUBLIC, List.of(),
+                    FILE_SIZE, "application/octet-stream", "hash", "link",
+                    FileMetadata.FileStatus.READY, now, now);
+
+            FileService service = mock(FileService.class, withSettings().stubOnly());
+            when(service.openDownload(anyString())).thenAnswer(inv -> new FileDownload(meta, storage));
+            return service;
+        }
+    }
+}
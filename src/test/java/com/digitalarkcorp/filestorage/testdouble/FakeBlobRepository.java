@@ -0,0 +1,108 @@
+package com.digitalarkcorp.filestorage.testdouble;
+
+import com.digitalarkcorp.filestorage.api.errors.UnavailableException;
+import com.digitalarkcorp.filestorage.domain.Blob;
+import com.digitalarkcorp.filestorage.domain.ports.BlobRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class FakeBlobRepository implements BlobRepository {
+
+    private final Map<String, Blob> byHash = new HashMap<>();
+    private final Set<String> collecting = new HashSet<>();
+
+    @Override
+    public synchronized Blob acquire(String hash, long size, Instant now) {
+        if (collecting.contains(hash)) {
+            throw new UnavailableException("content is being collected, retry shortly", Duration.ofSeconds(1), null);
+        }
+        Blob b = byHash.get(hash);
+        Blob next = b == null
+                ? new Blob(hash, size, 1, false, null, size, now, now)
+                : new Blob(hash, b.size(), b.refs() + 1, b.stored(), b.encoding(), b.storedSize(), b.createdAt(), now);
+        byHash.put(hash, next);
+        return next;
+    }
+
+    @Override
+    public synchronized Blob markStored(String hash, String encoding, long storedSize) {
+        return byHash.computeIfPresent(hash, (k, b) -> b.stored() ? b
+                : new Blob(k, b.size(), b.refs(), true, encoding, storedSize, b.createdAt(), b.updatedAt()));
+    }
+
+    @Override
+    public synchronized long release(String hash, Instant now) {
+        Blob b = byHash.get(hash);
+        if (b == null) return -1;
+        Blob next = new Blob(hash, b.size(), b.refs() - 1, b.stored(), b.encoding(), b.storedSize(), b.createdAt(), now);
+        byHash.put(hash, next);
+        return next.refs();
+    }
+
+    @Override
+    public synchronized Set<String> release(Map<String, Long> counts, Instant now) {
+        Set<String> unrecorded = new HashSet<>();
+        counts.forEach((hash, n) -> {
+            Blob b = byHash.get(hash);
+            if (b == null) {
+                unrecorded.add(hash);
+            } else {
+                byHash.put(hash, new Blob(hash, b.size(), b.refs() - n, b.stored(), b.encoding(), b.storedSize(),
+                        b.createdAt(), now));
+            }
+        });
+        return unrecorded;
+    }
+
+    @Override
+    public synchronized Blob claimCollectable(Instant releasedBefore, Instant now) {
+        for (Blob b : byHash.values()) {
+            if (b.refs() <= 0 && b.updatedAt().isBefore(releasedBefore) && !collecting.contains(b.hash())) {
+                collecting.add(b.hash());
+                return b;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void restore(String hash, long refs, boolean stored, Instant now) {
+        collecting.remove(hash);
+        byHash.computeIfPresent(hash, (k, b) -> new Blob(k, b.size(), refs, stored, b.encoding(), b.storedSize(), b.createdAt(), now));
+    }
+
+    @Override
+    public synchronized void delete(String hash) {
+        collecting.remove(hash);
+        byHash.remove(hash);
+    }
+
+    @Override
+    public synchronized List<Blob> findSettled(String afterHash, Instant changedBefore, int limit) {
+        return byHash.values().stream()
+                .filter(b -> b.refs() > 0 && !collecting.contains(b.hash()) && b.updatedAt().isBefore(changedBefore))
+                .filter(b -> afterHash == null || b.hash().compareTo(afterHash) > 0)
+                .sorted(Comparator.comparing(Blob::hash))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public synchronized boolean correct(Blob seen, long refs, Instant now) {
+        if (collecting.contains(seen.hash()) || !seen.equals(byHash.get(seen.hash()))) return false;
+        byHash.put(seen.hash(), new Blob(seen.hash(), seen.size(), refs, seen.stored(), seen.encoding(),
+                seen.storedSize(), seen.createdAt(), now));
+        return true;
+    }
+
+    public synchronized Blob get(String hash) {
+        return byHash.get(hash);
+    }
+}
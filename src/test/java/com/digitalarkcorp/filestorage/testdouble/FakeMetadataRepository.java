@@ -1,162 +1,235 @@
-package com.digitalarkcorp.filestorage.testdouble;
-
-import com.digitalarkcorp.filestorage.api.dto.ListQuery;
-import com.digitalarkcorp.filestorage.domain.FileMetadata;
-import com.digitalarkcorp.filestorage.domain.Visibility;
-import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
-
-import java.lang.reflect.Method;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-
-public class FakeMetadataRepository implements MetadataRepository {
-
-    private final Map<String, FileMetadata> byId = new ConcurrentHashMap<>();
-
-    @Override
-    public FileMetadata save(FileMetadata m) {
-        String id = m.id() != null ? m.id() : genId();
-        FileMetadata saved = new FileMetadata(
-                id,
-                m.ownerId(),
-                m.filename(),
-                m.visibility(),
-                m.tags(),
-                m.size(),
-                m.contentType(),
-                m.contentHash(),
-                m.linkId(),
-                m.status(),
-                m.createdAt(),
-                m.updatedAt()
-        );
-        byId.put(id, saved);
-        return saved;
-    }
-
-    @Override
-    public FileMetadata findById(String id) {
-        return byId.get(id);
-    }
-
-    @Override
-    public FileMetadata findByLinkId(String linkId) {
-        return byId.values().stream()
-                .filter(f -> linkId != null && linkId.equals(f.linkId()))
-                .findFirst()
-                .orElse(null);
-    }
-
-    @Override
-    public boolean deleteByIdAndOwner(String id, String ownerId) {
-        FileMetadata existing = byId.get(id);
-        if (existing == null) return false;
-        if (!existing.ownerId().equals(ownerId)) return false;
-        byId.remove(id);
-        return true;
-    }
-
-    @Override
-    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
-        return byId.values().stream()
-                .anyMatch(f -> f.ownerId().equals(ownerId) && contentHash.equals(f.contentHash()));
-    }
-
-    @Override
-    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
-        return byId.values().stream()
-                .anyMatch(f -> f.ownerId().equals(ownerId) && f.filename().equals(filename));
-    }
-
-    @Override
-    public void rename(String id, String newFilename, Instant now) {
-        FileMetadata existing = byId.get(id);
-        if (existing == null) return;
-        FileMetadata renamed = new FileMetadata(
-                existing.id(),
-                existing.ownerId(),
-                newFilename,
-                existing.visibility(),
-                existing.tags(),
-                existing.size(),
-                existing.contentType(),
-                existing.contentHash(),
-                existing.linkId(),
-                existing.status(),
-                existing.createdAt(),
-                now != null ? now : existing.updatedAt()
-        );
-        byId.put(id, renamed);
-    }
-
-    @Override
-    public List<FileMetadata> listByOwner(String ownerId, ListQuery q) {
-        List<FileMetadata> base = byId.values().stream()
-                .filter(f -> f.ownerId().equals(ownerId))
-                .collect(Collectors.toCollection(ArrayList::new));
-        return applyQuery(base, q);
-    }
-
-    @Override
-    public List<FileMetadata> listPublic(ListQuery q) {
-        List<FileMetadata> base = byId.values().stream()
-                .filter(f -> f.visibility() == Visibility.PUBLIC)
-                .collect(Collectors.toCollection(ArrayList::new));
-        return applyQuery(base, q);
-    }
-
-    private static List<FileMetadata> applyQuery(List<FileMetadata> src, ListQuery q) {
-        String tag = q.tag();
-        String contains = containsValue(q);
-
-        List<FileMetadata> filtered = src.stream()
-                .filter(f -> tag == null || (f.tags() != null && f.tags().stream().anyMatch(t -> t.equalsIgnoreCase(tag))))
-                .filter(f -> contains == null || f.filename().toLowerCase().contains(contains.toLowerCase()))
-                .collect(Collectors.toCollection(ArrayList::new));
-
-        Comparator<FileMetadata> cmp;
-        switch (q.sortBy()) {
-            case FILENAME -> cmp = Comparator.comparing(FileMetadata::filename, String.CASE_INSENSITIVE_ORDER);
-            case SIZE -> cmp = Comparator.comparingLong(FileMetadata::size);
-            case CREATED_AT -> cmp = Comparator.comparing(FileMetadata::createdAt);
-            default -> cmp = Comparator.comparing(FileMetadata::createdAt);
-        }
-        if (q.sortDir() == ListQuery.SortDir.DESC) cmp = cmp.reversed();
-        filtered.sort(cmp);
-
-        int from = Math.max(0, q.page() * q.size());
-        int to = Math.min(filtered.size(), from + q.size());
-        if (from >= filtered.size()) return List.of();
-        return filtered.subList(from, to);
-    }
-
-    private static String containsValue(ListQuery q) {
-        for (String name : new String[]{"filenameContains", "q", "nameLike"}) {
-            try {
-                Method m = q.getClass().getMethod(name);
-                Object v = m.invoke(q);
-                return v != null ? String.valueOf(v) : null;
-            } catch (Exception ignored) {
-            }
-        }
-        return null;
-    }
-
-    private static String genId() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
-    }
-
-    @Override
-    public long countByContentHash(String contentHash) {
-        return byId.values().stream()
-                .filter(f -> contentHash != null && contentHash.equals(f.contentHash()))
-                .count();
-    }
-
-}
+package com.digitalarkcorp.filestorage.testdouble;
+
+import com.digitalarkcorp.filestorage.api.dto.ListQuery;
+import com.digitalarkcorp.filestorage.api.errors.ConflictException;
+import com.digitalarkcorp.filestorage.domain.FileMetadata;
+import com.digitalarkcorp.filestorage.domain.Visibility;
+import com.digitalarkcorp.filestorage.domain.ports.MetadataRepository;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+public class FakeMetadataRepository implements MetadataRepository {
+
+    private final Map<String, FileMetadata> byId = new ConcurrentHashMap<>();
+    private int bulkInserts;
+
+    @Override
+    public synchronized FileMetadata save(FileMetadata m) {
+        // mirrors the unique (owner, filename) and (owner, contentHash) indexes
+        if (existsByOwnerAndFilename(m.ownerId(), m.filename())) {
+            throw new ConflictException("filename already exists for owner");
+        }
+        if (existsByOwnerAndContentHash(m.ownerId(), m.contentHash())) {
+            throw new ConflictException("content already exists for owner");
+        }
+        String id = m.id() != null ? m.id() : genId();
+        FileMetadata saved = new FileMetadata(
+                id,
+                m.ownerId(),
+                m.filename(),
+                m.visibility(),
+                m.tags(),
+                m.size(),
+                m.contentType(),
+                m.contentHash(),
+                m.linkId(),
+                m.status(),
+                m.createdAt(),
+                m.updatedAt(),
+                m.contentEncoding(),
+                m.storedSize()
+        );
+        byId.put(id, saved);
+        return saved;
+    }
+
+    @Override
+    public synchronized List<Saved> saveAll(List<FileMetadata> files) {
+        bulkInserts++;
+        List<Saved> saved = new ArrayList<>(files.size());
+        for (FileMetadata m : files) {
+            try {
+                saved.add(new Saved(save(m), null));
+            } catch (RuntimeException e) {
+                saved.add(new Saved(null, e));
+            }
+        }
+        return saved;
+    }
+
+    /** How many {@link #saveAll} requests were made. */
+    public int bulkInserts() {
+        return bulkInserts;
+    }
+
+    @Override
+    public FileMetadata findById(String id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public FileMetadata findByLinkId(String linkId) {
+        return byId.values().stream()
+                .filter(f -> linkId != null && linkId.equals(f.linkId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public boolean deleteByIdAndOwner(String id, String ownerId) {
+        FileMetadata existing = byId.get(id);
+        if (existing == null) return false;
+        if (!existing.ownerId().equals(ownerId)) return false;
+        byId.remove(id);
+        return true;
+    }
+
+    @Override
+    public boolean existsByOwnerAndContentHash(String ownerId, String contentHash) {
+        return byId.values().stream()
+                .anyMatch(f -> f.ownerId().equals(ownerId) && contentHash.equals(f.contentHash()));
+    }
+
+    @Override
+    public boolean existsByOwnerAndFilename(String ownerId, String filename) {
+        return byId.values().stream()
+                .anyMatch(f -> f.ownerId().equals(ownerId) && f.filename().equals(filename));
+    }
+
+    @Override
+    public synchronized void rename(String id, String newFilename, Instant now) {
+        FileMetadata existing = byId.get(id);
+        if (existing == null) return;
+        if (byId.values().stream().anyMatch(f -> !f.id().equals(id)
+                && f.ownerId().equals(existing.ownerId()) && f.filename().equals(newFilename))) {
+            throw new ConflictException("filename already exists for owner");
+        }
+        FileMetadata renamed = new FileMetadata(
+                existing.id(),
+                existing.ownerId(),
+                newFilename,
+                existing.visibility(),
+                existing.tags(),
+                existing.size(),
+                existing.contentType(),
+                existing.contentHash(),
+                existing.linkId(),
+                existing.status(),
+                existing.createdAt(),
+                now != null ? now : existing.updatedAt(),
+                existing.contentEncoding(),
+                existing.storedSize()
+        );
+        byId.put(id, renamed);
+    }
+
+    @Override
+    public List<FileMetadata> listByOwner(String ownerId, ListQuery q) {
+        List<FileMetadata> base = byId.values().stream()
+                .filter(f -> f.ownerId().equals(ownerId))
+                .collect(Collectors.toCollection(ArrayList::new));
+        return applyQuery(base, q);
+    }
+
+    @Override
+    public List<FileMetadata> listPublic(ListQuery q) {
+        List<FileMetadata> base = byId.values().stream()
+                .filter(f -> f.visibility() == Visibility.PUBLIC)
+                .collect(Collectors.toCollection(ArrayList::new));
+        return applyQuery(base, q);
+    }
+
+    private static List<FileMetadata> applyQuery(List<FileMetadata> src, ListQuery q) {
+        String tag = q.tag();
+        String contains = containsValue(q);
+
+        List<FileMetadata> filtered = src.stream()
+                .filter(f -> tag == null || (f.tags() != null && f.tags().stream().anyMatch(t -> t.equalsIgnoreCase(tag))))
+                .filter(f -> contains == null || f.filename().toLowerCase().contains(contains.toLowerCase()))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        Comparator<FileMetadata> cmp;
+        switch (q.sortBy()) {
+            case FILENAME -> cmp = Comparator.comparing(FileMetadata::filename, String.CASE_INSENSITIVE_ORDER);
+            case SIZE -> cmp = Comparator.comparingLong(FileMetadata::size);
+            case CREATED_AT -> cmp = Comparator.comparing(FileMetadata::createdAt);
+            default -> cmp = Comparator.comparing(FileMetadata::createdAt);
+        }
+        if (q.sortDir() == ListQuery.SortDir.DESC) cmp = cmp.reversed();
+        filtered.sort(cmp);
+
+        int from = Math.max(0, q.page() * q.size());
+        int to = Math.min(filtered.size(), from + q.size());
+        if (from >= filtered.size()) return List.of();
+        return filtered.subList(from, to);
+    }
+
+    private static String containsValue(ListQuery q) {
+        for (String name : new String[]{"filenameContains", "q", "nameLike"}) {
+            try {
+                Method m = q.getClass().getMethod(name);
+                Object v = m.invoke(q);
+                return v != null ? String.valueOf(v) : null;
+            } catch (Exception ignored) {
+            }
+        }
+        return null;
+    }
+
+    private static String genId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    @Override
+    public long countByContentHash(String contentHash) {
+        return byId.values().stream()
+                .filter(f -> contentHash != null && contentHash.equals(f.contentHash()))
+                .count();
+    }
+
+    @Override
+    public Map<String, Long> countByContentHashes(Collection<String> contentHashes) {
+        return byId.values().stream()
+                .filter(f -> contentHashes.contains(f.contentHash()))
+                .collect(Collectors.groupingBy(FileMetadata::contentHash, Collectors.counting()));
+    }
+
+    @Override
+    public List<FileMetadata> findAllById(Collection<String> ids) {
+        return ids.stream().distinct().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public synchronized long deleteAllByIdsAndOwner(Collection<String> ids, String ownerId) {
+        long deleted = 0;
+        for (String id : ids) {
+            if (deleteByIdAndOwner(id, ownerId)) deleted++;
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean existsByContentHash(String contentHash) {
+        return countByContentHash(contentHash) > 0;
+    }
+
+    @Override
+    public FileMetadata findReadableByContentHash(String ownerId, String contentHash) {
+        return byId.values().stream()
+                .filter(f -> contentHash.equals(f.contentHash()))
+                .filter(f -> f.ownerId().equals(ownerId) || f.visibility() == Visibility.PUBLIC)
+                .findFirst()
+                .orElse(null);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.digitalarkcorp.filestorage.testdouble;
+
+import com.digitalarkcorp.filestorage.domain.UploadSession;
+import com.digitalarkcorp.filestorage.domain.ports.UploadSessionRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FakeUploadSessionRepository implements UploadSessionRepository {
+
+    private final Map<String, UploadSession> byId = new ConcurrentHashMap<>();
+
+    @Override
+    public UploadSession save(UploadSession s) {
+        String id = s.id() != null ? s.id() : UUID.randomUUID().toString();
+        UploadSession saved = new UploadSession(
+                id, s.ownerId(), s.filename(), s.visibility(), s.tags(), s.contentType(),
+                s.length(), s.offset(), List.copyOf(s.chunkKeys()), s.createdAt(), s.updatedAt());
+        byId.put(id, saved);
+        return saved;
+    }
+
+    @Override
+    public UploadSession findById(String id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public boolean appendChunk(String id, int expectedChunks, String chunkKey, long chunkLength, Instant now) {
+        boolean[] appended = {false};
+        byId.computeIfPresent(id, (k, s) -> {
+            if (s.chunks() != expectedChunks) return s;
+            List<String> keys = new ArrayList<>(s.chunkKeys());
+            keys.add(chunkKey);
+            appended[0] = true;
+            return new UploadSession(
+                    s.id(), s.ownerId(), s.filename(), s.visibility(), s.tags(), s.contentType(),
+                    s.length(), s.offset() + chunkLength, List.copyOf(keys), s.createdAt(), now);
+        });
+        return appended[0];
+    }
+
+    @Override
+    public void delete(String id) {
+        byId.remove(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}